@@ -0,0 +1,22 @@
+package io.archer;
+
+import io.smallrye.config.SmallRyeConfig;
+import io.smallrye.config.SmallRyeConfigBuilder;
+
+import java.util.Map;
+
+/**
+ * Builds {@link PromotionOptions} outside of Quarkus, the defaults of the mapping apply to the keys left out.
+ */
+public final class BenchmarkOptions {
+    private BenchmarkOptions() {
+    }
+
+    public static PromotionOptions promotion(Map<String, String> values) {
+        SmallRyeConfig config = new SmallRyeConfigBuilder()
+                .withMapping(PromotionOptions.class)
+                .withDefaultValues(values)
+                .build();
+        return config.getConfigMapping(PromotionOptions.class);
+    }
+}
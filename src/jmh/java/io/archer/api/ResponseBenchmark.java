@@ -0,0 +1,48 @@
+package io.archer.api;
+
+import io.archer.model.Promotion;
+import jakarta.ws.rs.core.Response;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The response bodies built by {@link ActivityResource}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseBenchmark {
+    private Promotion promotion;
+
+    @Setup
+    public void setup() {
+        promotion = new Promotion()
+                .setId(UUID.randomUUID())
+                .setUser("user")
+                .setActivity("activity")
+                .setCode("Ab3dEf7h")
+                .setReservedTime(Instant.now())
+                .setIssuedTime(Instant.now());
+    }
+
+    @Benchmark
+    public Response reserved() {
+        return ActivityResource.reserved(promotion);
+    }
+
+    @Benchmark
+    public Response issued() {
+        return ActivityResource.issued(promotion);
+    }
+
+    @Benchmark
+    public Response message() {
+        return ActivityResource.message(Response.Status.FORBIDDEN, "the promotion amount is ran out.");
+    }
+}
@@ -0,0 +1,50 @@
+package io.archer.dba.cache;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.security.SecureRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The coupon code generators, called once per issued coupon, also from many threads at once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CouponCodeBenchmark {
+    private final SecureRandom secureRandom = new SecureRandom();
+    private final AtomicLong sequence = new AtomicLong();
+    private final long key = CouponCode.key(0, "benchmark");
+
+    @Benchmark
+    public String random() {
+        return CouponCode.random(ThreadLocalRandom.current());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String randomContended() {
+        return CouponCode.random(ThreadLocalRandom.current());
+    }
+
+    @Benchmark
+    public String secure() {
+        return CouponCode.random(secureRandom);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String secureContended() {
+        return CouponCode.random(secureRandom);
+    }
+
+    @Benchmark
+    public String sequence() {
+        return CouponCode.permute(key, sequence.getAndIncrement() % CouponCode.SPACE);
+    }
+}
@@ -0,0 +1,83 @@
+package io.archer.dba.cache;
+
+import io.archer.BenchmarkOptions;
+import io.archer.PromotionEvents;
+import io.archer.PromotionMetrics;
+import io.archer.PromotionOptions;
+import io.archer.model.Activity;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Field;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reserve and issue of {@link MemoryPromotionStore}, to compare with {@link PromotionCacheBenchmark}.
+ * <p>
+ * Every iteration works on a new activity, the issue benchmark takes the next user reserved in the iteration setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, batchSize = MemoryPromotionStoreBenchmark.USERS)
+@Measurement(iterations = 5, batchSize = MemoryPromotionStoreBenchmark.USERS)
+@Fork(1)
+public class MemoryPromotionStoreBenchmark {
+    static final int USERS = 10000;
+
+    @Param({"false", "true"})
+    private String offHeap;
+
+    private MemoryPromotionStore store;
+
+    private String reservingActivity;
+    private String issuingActivity;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void start() throws ReflectiveOperationException {
+        PromotionOptions options = BenchmarkOptions.promotion(Map.of(
+                "promotion.store", "MEMORY",
+                "promotion.memory.offHeap", offHeap
+        ));
+        store = new MemoryPromotionStore();
+        // the meters are recorded as in the service, into a registry which is never scraped.
+        PromotionMetrics metrics = new PromotionMetrics();
+        inject(metrics, "registry", new SimpleMeterRegistry());
+        inject(store, "metrics", metrics);
+        PromotionEvents events = new PromotionEvents();
+        inject(events, "options", options);
+        inject(store, "events", events);
+        inject(store, "options", options);
+    }
+
+    @Setup(Level.Iteration)
+    public void prepare() {
+        reservingActivity = "benchmark-" + UUID.randomUUID();
+        issuingActivity = "benchmark-" + UUID.randomUUID();
+        next = 0;
+        for (int i = 0; i < USERS; i++) {
+            store.reserve(issuingActivity, "user-" + i).await().indefinitely();
+        }
+        // enough for every reserved user, the benchmark measures the issue path rather than running out.
+        store.prepare(new Activity().setId(issuingActivity).setPercentage(100), "benchmark").await().indefinitely();
+    }
+
+    @Benchmark
+    public Object reserve() {
+        return store.reserve(reservingActivity, "user-" + next++).await().indefinitely();
+    }
+
+    @Benchmark
+    public Object issue() {
+        return store.issue(issuingActivity, "user-" + next++).await().indefinitely();
+    }
+
+    private static void inject(Object target, String name, Object value) throws ReflectiveOperationException {
+        Field field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+}
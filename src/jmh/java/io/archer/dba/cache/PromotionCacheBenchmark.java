@@ -0,0 +1,120 @@
+package io.archer.dba.cache;
+
+import io.archer.BenchmarkOptions;
+import io.archer.PromotionEvents;
+import io.archer.PromotionMetrics;
+import io.archer.PromotionOptions;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.quarkus.redis.datasource.ReactiveRedisDataSource;
+import io.quarkus.redis.runtime.datasource.ReactiveRedisDataSourceImpl;
+import io.vertx.mutiny.core.Vertx;
+import io.vertx.mutiny.redis.client.Redis;
+import io.vertx.mutiny.redis.client.RedisAPI;
+import org.openjdk.jmh.annotations.*;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reserve and issue round trips of {@link PromotionCache} against a local redis-server started for the run.
+ * <p>
+ * Every iteration works on a new activity, the issue benchmark takes the next user reserved in the iteration setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, batchSize = PromotionCacheBenchmark.USERS)
+@Measurement(iterations = 5, batchSize = PromotionCacheBenchmark.USERS)
+@Fork(1)
+public class PromotionCacheBenchmark {
+    static final int USERS = 10000;
+
+    @Param({"LOCK", "SCRIPT", "LEASE"})
+    private String issuingMode;
+
+    @Param("6390")
+    private int port;
+
+    private RedisServer server;
+    private Vertx vertx;
+    private ReactiveRedisDataSource dataSource;
+    private PromotionCache cache;
+
+    private String reservingActivity;
+    private String issuingActivity;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void start() throws IOException, ReflectiveOperationException {
+        server = new RedisServer(port);
+        server.start();
+        vertx = Vertx.vertx();
+        Redis redis = Redis.createClient(vertx, "redis://localhost:" + port);
+        dataSource = new ReactiveRedisDataSourceImpl(vertx, redis, RedisAPI.api(redis));
+        PromotionOptions options = BenchmarkOptions.promotion(Map.of("promotion.issuingMode", issuingMode));
+        StockNotifier notifier = new StockNotifier();
+        inject(notifier, "redisDataSource", dataSource);
+        cache = new PromotionCache();
+        inject(cache, "notifier", notifier);
+        // the meters are recorded as in the service, into a registry which is never scraped.
+        PromotionMetrics metrics = new PromotionMetrics();
+        inject(metrics, "registry", new SimpleMeterRegistry());
+        inject(cache, "metrics", metrics);
+        PromotionEvents events = new PromotionEvents();
+        inject(events, "options", options);
+        inject(cache, "events", events);
+        inject(cache, "redisDataSource", dataSource);
+        inject(cache, "options", options);
+        cache.init();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() throws IOException {
+        vertx.closeAndAwait();
+        server.stop();
+    }
+
+    @Setup(Level.Iteration)
+    public void prepare() {
+        reservingActivity = "benchmark-" + UUID.randomUUID();
+        issuingActivity = "benchmark-" + UUID.randomUUID();
+        next = 0;
+        for (int i = 0; i < USERS; i++) {
+            cache.reserve(issuingActivity, "user-" + i).await().indefinitely();
+        }
+        // enough for every reserved user, the benchmark measures the issue path rather than running out.
+        dataSource.value(String.class)
+                .set(String.join(":", "promotion", "amount", issuingActivity), String.valueOf(USERS))
+                .await().indefinitely();
+    }
+
+    @TearDown(Level.Iteration)
+    public void clean() {
+        cache.close(issuingActivity).await().indefinitely();
+        dataSource.key().del(
+                String.join(":", "promotion", reservingActivity),
+                String.join(":", "promotion", issuingActivity),
+                String.join(":", "promotion", "amount", issuingActivity)
+        ).await().indefinitely();
+    }
+
+    @Benchmark
+    public Object reserve() {
+        return cache.reserve(reservingActivity, "user-" + next++).await().indefinitely();
+    }
+
+    @Benchmark
+    public Object issue() {
+        return cache.issue(issuingActivity, "user-" + next++).await().indefinitely();
+    }
+
+    private static void inject(Object target, String name, Object value) throws ReflectiveOperationException {
+        Field field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+}
@@ -0,0 +1,78 @@
+package io.archer.model;
+
+import io.vertx.core.json.Json;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The conversions a promotion goes through on every reserve and issue.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PromotionBenchmark {
+    private Promotion promotion;
+    private Map<String, String> map;
+    private String json;
+    private byte[] binary;
+
+    @Setup
+    public void setup() {
+        promotion = new Promotion()
+                .setId(UUID.randomUUID())
+                .setUser("user")
+                .setActivity("activity")
+                .setCode("Ab3dEf7h")
+                .setReservedTime(Instant.now().truncatedTo(ChronoUnit.MILLIS))
+                .setIssuedTime(Instant.now().truncatedTo(ChronoUnit.MILLIS));
+        map = promotion.toMap();
+        json = Json.encode(map);
+        binary = PromotionCodec.encode(promotion);
+    }
+
+    @Benchmark
+    public Map<String, String> toMap() {
+        return promotion.toMap();
+    }
+
+    @Benchmark
+    public Promotion valueOf() {
+        return Promotion.valueOf(map);
+    }
+
+    @Benchmark
+    public String encodeJson() {
+        return Json.encode(promotion.toMap());
+    }
+
+    @Benchmark
+    public Promotion decodeJson() {
+        //noinspection unchecked
+        return Promotion.valueOf(Json.decodeValue(json, HashMap.class));
+    }
+
+    @Benchmark
+    public byte[] encodeBinary() {
+        return PromotionCodec.encode(promotion);
+    }
+
+    @Benchmark
+    public Promotion decodeBinary() {
+        return PromotionCodec.decode(binary, "activity", "user");
+    }
+
+    @Benchmark
+    public Promotion decodeLegacyJson() {
+        return PromotionCodec.decode(json.getBytes(StandardCharsets.UTF_8), "activity", "user");
+    }
+}
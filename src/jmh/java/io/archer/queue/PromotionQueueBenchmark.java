@@ -0,0 +1,70 @@
+package io.archer.queue;
+
+import io.archer.BenchmarkOptions;
+import io.archer.PromotionOptions;
+import io.archer.model.Promotion;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Offers from many request threads while one writer keeps taking batches, like the database writer does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PromotionQueueBenchmark {
+    @Param({"REJECT", "BLOCK"})
+    private String overflow;
+
+    private PromotionQueue queue;
+    private Promotion promotion;
+    private Thread writer;
+
+    @Setup
+    public void setup() {
+        PromotionOptions options = BenchmarkOptions.promotion(Map.of("promotion.queue.overflow", overflow));
+        queue = new PromotionQueue(
+                "benchmark",
+                PromotionJournal.Type.RESERVED,
+                options.queue(),
+                new PromotionJournal(options.journal())
+        ) {
+        };
+        promotion = new Promotion().setId(UUID.randomUUID());
+        writer = new Thread(() -> {
+            try {
+                while (true) {
+                    queue.takeBatch();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "benchmark-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        writer.interrupt();
+        writer.join();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean offer() {
+        return queue.offer(promotion);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean offerContended() {
+        return queue.offer(promotion);
+    }
+}
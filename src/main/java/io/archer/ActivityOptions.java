@@ -6,23 +6,38 @@ import io.smallrye.config.WithConverter;
 import io.smallrye.config.WithDefault;
 
 import java.time.Duration;
-import java.time.Instant;
-import java.time.OffsetTime;
 
 @ConfigMapping(prefix = "activity", namingStrategy = ConfigMapping.NamingStrategy.VERBATIM)
 public interface ActivityOptions {
+    enum Execution {
+        // the endpoints chain the calls of the store on the event loop.
+        REACTIVE,
+        // the endpoints wait for the calls of the store on a virtual thread, or a worker thread before Java 21.
+        BLOCKING
+    }
+
+    // the interval to load the activities again, a changed activity takes effect without a restart.
     @WithConverter(DurationConverter.class)
-    @WithDefault("PT1M")
-    Duration issuingDuration();
+    @WithDefault("PT10S")
+    Duration reloadInterval();
 
-    @WithDefault("23:00:00+08:00")
-    OffsetTime issuingTime();
+    // the most users a batch reserve or issue request may have.
+    @WithDefault("500")
+    int maxBatchSize();
 
-    @WithConverter(DurationConverter.class)
-    @WithDefault("PT4M")
-    Duration reservingDuration();
+    // how the reserve and issue endpoints run.
+    @WithDefault("REACTIVE")
+    Execution execution();
+
+    Idempotency idempotency();
 
-    @WithDefault("22:55:00+08:00")
-    OffsetTime reservingTime();
+    interface Idempotency {
+        // the answers kept for the Idempotency-Key of the reserve requests, and how long a retry is answered again.
+        @WithDefault("100000")
+        long maximumSize();
 
+        @WithConverter(DurationConverter.class)
+        @WithDefault("PT1H")
+        Duration expiry();
+    }
 }
@@ -0,0 +1,97 @@
+package io.archer;
+
+import io.archer.dba.sql.ActivityFacade;
+import io.archer.model.Activity;
+import io.quarkus.logging.Log;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The activities loaded from the database.
+ * <p>
+ * The request path reads an immutable snapshot without locking, a reload sets the phase and the timers of the new
+ * or changed activities, swaps in a new snapshot, then cancels the timers of the removed ones. An unchanged activity
+ * is kept as it is in the new snapshot, with the phase its timers move.
+ */
+@ApplicationScoped
+public class ActivityRegistry {
+    @Inject
+    private ActivityFacade facade;
+
+    @Inject
+    private ActivityOptions options;
+
+    @Inject
+    private PromotionChecker checker;
+
+    private volatile Map<String, Activity> activities = Map.of();
+
+    private ScheduledExecutorService reloader;
+
+    void onStart(@Observes StartupEvent event) {
+        reload();
+        long interval = options.reloadInterval().toMillis();
+        reloader = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "activity-reloader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reloader.scheduleWithFixedDelay(this::reload, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return the activity, or null if there is no such activity.
+     */
+    public Activity get(String activityId) {
+        return activities.get(activityId);
+    }
+
+    /**
+     * Loads the activities again, the last snapshot is kept if they can't be loaded.
+     */
+    public synchronized void reload() {
+        Map<String, Activity> previous = activities;
+        Map<String, Activity> loaded = new HashMap<>();
+        try {
+            for (Activity activity : facade.findAll()) {
+                Activity known = previous.get(activity.getId());
+                loaded.put(activity.getId(), activity.equals(known) ? known : activity);
+            }
+        } catch (SQLException e) {
+            Log.error("Failed to load the activities.", e);
+            return;
+        }
+        // a request never sees an activity without its phase.
+        for (Activity activity : loaded.values()) {
+            if (activity != previous.get(activity.getId())) {
+                checker.register(activity);
+            }
+        }
+        activities = Map.copyOf(loaded);
+        for (String activityId : previous.keySet()) {
+            if (!loaded.containsKey(activityId)) {
+                checker.cancel(activityId);
+            }
+        }
+        if (!loaded.equals(previous)) {
+            Log.info(loaded.size() + " activities are loaded.");
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        if (reloader != null) {
+            reloader.shutdown();
+        }
+    }
+}
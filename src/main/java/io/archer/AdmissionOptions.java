@@ -0,0 +1,47 @@
+package io.archer;
+
+import io.quarkus.runtime.configuration.DurationConverter;
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithConverter;
+import io.smallrye.config.WithDefault;
+
+import java.time.Duration;
+
+@ConfigMapping(prefix = "admission", namingStrategy = ConfigMapping.NamingStrategy.VERBATIM)
+public interface AdmissionOptions {
+    // put the reserve and issue requests through the limits below, refused requests are answered with Retry-After.
+    @WithDefault("true")
+    boolean enabled();
+
+    Concurrency concurrency();
+
+    interface Concurrency {
+        // the requests a node lets wait on Redis at a time, the limit moves between minLimit and maxLimit:
+        // it is lowered while the latency is above targetLatency, and raised while it is below and the limit is used.
+        @WithDefault("256")
+        int initialLimit();
+
+        // no lower than the Redis connections, which are used anyway.
+        @WithDefault("32")
+        int minLimit();
+
+        @WithDefault("1024")
+        int maxLimit();
+
+        @WithConverter(DurationConverter.class)
+        @WithDefault("PT0.2S")
+        Duration targetLatency();
+    }
+
+    Rate rate();
+
+    interface Rate {
+        // the requests a node admits per second for an activity.
+        @WithDefault("10000")
+        int perSecond();
+
+        // the requests admitted at once after a quiet time.
+        @WithDefault("10000")
+        int burst();
+    }
+}
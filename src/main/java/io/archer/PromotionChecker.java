@@ -1,43 +1,170 @@
 package io.archer;
 
-import io.archer.dba.cache.PromotionCache;
+import io.archer.dba.cache.PromotionStore;
+import io.archer.model.Activity;
+import io.archer.schedule.TimingWheel;
 import io.quarkus.logging.Log;
-import io.smallrye.mutiny.Uni;
-import io.vertx.core.Future;
-import io.vertx.core.Vertx;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 
-import java.util.HashMap;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Moves the activities through their phases, counts the amount of an activity when its reservation closes, and
+ * closes its issuing on time.
+ * <p>
+ * The timers of an activity are set when the {@link ActivityRegistry} loads it, and set again when it changes. The
+ * phase is set at once from the times, then each boundary still to come moves it forward, so a request only reads
+ * the phase. The amount is counted and the issuing closed {@code promotion.schedule.clockSkew} after their times, so
+ * a node whose clock is behind has stopped reserving or issuing by then.
+ */
 @ApplicationScoped
 public class PromotionChecker {
+    private record Timers(Activity activity, List<TimingWheel.Timeout> timeouts) {
+        private void cancel() {
+            timeouts.forEach(TimingWheel.Timeout::cancel);
+        }
+    }
+
     @Inject
-    private PromotionCache cache;
+    private PromotionStore store;
 
     @Inject
-    private Vertx vertx;
+    private PromotionOptions options;
+
+    @Inject
+    private PromotionMetrics metrics;
+
+    private TimingWheel wheel;
+
+    private final ConcurrentHashMap<String, Timers> activities = new ConcurrentHashMap<>();
 
-    private HashMap<String, Long> tasks = new HashMap<>();
+    @PostConstruct
+    void init() {
+        PromotionOptions.Schedule schedule = options.schedule();
+        wheel = new TimingWheel("promotion-timers", schedule.tick(), schedule.wheelSize(), schedule.levels());
+    }
+
+    /**
+     * Sets the phase and the timers of an activity, the timers of its previous definition are cancelled.
+     */
+    public void register(Activity activity) {
+        activities.compute(activity.getId(), (id, timers) -> {
+            if (timers != null) {
+                if (timers.activity() == activity) {
+                    return timers;
+                }
+                timers.cancel();
+            }
+            long now = System.currentTimeMillis();
+            long skew = options.schedule().clockSkew().toMillis();
+            activity.setPhase(phaseAt(activity, now));
+            long prepareDelay = activity.getReservingEnd().toEpochMilli() + skew - now;
+            long closeDelay = activity.getIssuingEnd().toEpochMilli() + skew - now;
+            Log.info(id + " is " + activity.getPhase() + ", to count amount after " + prepareDelay
+                    + " ms, and to close issuing after " + closeDelay + " ms.");
+            List<TimingWheel.Timeout> timeouts = new ArrayList<>();
+            // the boundaries which have passed are in the phase already.
+            enter(activity, Activity.Phase.RESERVING, activity.getReservingTime(), now, timeouts);
+            enter(activity, Activity.Phase.CLOSED, activity.getReservingEnd(), now, timeouts);
+            enter(activity, Activity.Phase.ISSUING, activity.getIssuingTime(), now, timeouts);
+            enter(activity, Activity.Phase.FINISHED, activity.getIssuingEnd(), now, timeouts);
+            // a count or a close which has passed is due at once.
+            long prepareAt = now + Math.max(prepareDelay, 0);
+            long closeAt = now + Math.max(closeDelay, 0);
+            timeouts.add(wheel.schedule(() -> prepare(activity, prepareAt), prepareDelay, TimeUnit.MILLISECONDS));
+            timeouts.add(wheel.schedule(() -> close(id, closeAt), closeDelay, TimeUnit.MILLISECONDS));
+            return new Timers(activity, timeouts);
+        });
+    }
 
-    public synchronized void setTimer(String activityId, long delay) {
-        if (tasks.containsKey(activityId)) {
+    private void enter(
+            Activity activity,
+            Activity.Phase phase,
+            Instant time,
+            long now,
+            List<TimingWheel.Timeout> timeouts
+    ) {
+        long dueAt = time.toEpochMilli();
+        if (dueAt <= now) {
             return;
         }
-        long tid = vertx.setTimer(delay, id -> {
-            Future.fromCompletionStage(
-                    cache.prepare(activityId, id.toString()).subscribe().asCompletionStage()
-            );
-        });
-        tasks.put(activityId, tid);
-        Log.info(activityId + " is to count amount after " + delay + " ms." + ", Timer id: " + tid);
+        timeouts.add(wheel.schedule(() -> {
+            metrics.timerDrift(phase.name().toLowerCase(), System.currentTimeMillis() - dueAt);
+            advance(activity, phase);
+        }, dueAt - now, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Moves the activity to its phase by the clock, for a request which finds it in another phase, so a timer which
+     * fires a tick late never refuses a request on time.
+     *
+     * @return the phase of the activity.
+     */
+    public Activity.Phase catchUp(Activity activity) {
+        advance(activity, phaseAt(activity, System.currentTimeMillis()));
+        return activity.getPhase();
     }
 
-    public synchronized void cancelTimer(String activityId) {
-        if (tasks.containsKey(activityId)) {
-            if (vertx.cancelTimer(tasks.get(activityId)))
-                tasks.remove(activityId);
+    /**
+     * The phase by the clock, the same for the timers set by {@link #register} and the requests which catch up: the
+     * windows open and close on the times of the activity, and only the count and the close of the store wait for
+     * {@code promotion.schedule.clockSkew}, so no node reserves after the count or issues after the close.
+     */
+    private static Activity.Phase phaseAt(Activity activity, long now) {
+        return activity.phaseAt(Instant.ofEpochMilli(now));
+    }
+
+    // moves the activity forward to the phase, the timers due in the same tick may fire in any order.
+    private static void advance(Activity activity, Activity.Phase phase) {
+        // most callers find the activity there already, they only read the phase.
+        if (phase.compareTo(activity.getPhase()) <= 0) {
+            return;
+        }
+        synchronized (activity) {
+            if (phase.compareTo(activity.getPhase()) <= 0) {
+                return;
+            }
+            activity.setPhase(phase);
+        }
+        Log.info(activity.getId() + " is " + phase + ".");
+    }
+
+    public void cancel(String activityId) {
+        Timers timers = activities.remove(activityId);
+        if (timers != null) {
+            timers.cancel();
         }
     }
 
+    private void prepare(Activity activity, long dueAt) {
+        metrics.timerDrift("prepare", System.currentTimeMillis() - dueAt);
+        long start = System.nanoTime();
+        store.prepare(activity, "checker").subscribe().with(v -> {
+            metrics.prepared(System.nanoTime() - start, true);
+            advance(activity, Activity.Phase.PREPARED);
+        }, cause -> {
+            metrics.prepared(System.nanoTime() - start, false);
+            Log.error(activity.getId() + ": failed to count the amount.", cause);
+        });
+    }
+
+    private void close(String activityId, long dueAt) {
+        metrics.timerDrift("close", System.currentTimeMillis() - dueAt);
+        store.close(activityId).subscribe().with(v -> {
+        }, cause ->
+                Log.error(activityId + ": failed to close the issuing.", cause)
+        );
+    }
+
+    @PreDestroy
+    void close() {
+        wheel.close();
+    }
 }
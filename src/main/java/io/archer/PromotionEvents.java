@@ -0,0 +1,146 @@
+package io.archer;
+
+import io.archer.model.Promotion;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.jboss.logging.Logger;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The log of the reservations, the issued coupons and the rejections, in the {@code io.archer.events} category.
+ * <p>
+ * The request path doesn't log each event: it counts the events of each activity, which are logged in a summary
+ * every {@code promotion.events.summaryInterval}. Only a sample of the reserved and issued promotions, and the first
+ * rejection of each reason in an interval, are logged on their own. The lines are {@code key=value} pairs, which are
+ * only formatted when they are logged, and nothing is counted while the category is disabled.
+ */
+@ApplicationScoped
+public class PromotionEvents {
+    private static final Logger LOG = Logger.getLogger("io.archer.events");
+
+    // the events of an activity in the current interval.
+    private static final class Summary {
+        private final LongAdder reserved = new LongAdder();
+        private final LongAdder issued = new LongAdder();
+        private final ConcurrentHashMap<String, LongAdder> rejected = new ConcurrentHashMap<>();
+    }
+
+    @Inject
+    private PromotionOptions options;
+
+    private final ConcurrentHashMap<String, Summary> summaries = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService summarizer;
+
+    @PostConstruct
+    void init() {
+        long interval = options.events().summaryInterval().toMillis();
+        summarizer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "promotion-events-summarizer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        summarizer.scheduleWithFixedDelay(this::summarize, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    private Summary summaryOf(String activityId) {
+        return summaries.computeIfAbsent(activityId, id -> new Summary());
+    }
+
+    private boolean sampled() {
+        int rate = options.events().sampleRate();
+        return rate > 0 && ThreadLocalRandom.current().nextInt(rate) == 0;
+    }
+
+    public void reserved(Promotion promotion) {
+        if (!LOG.isInfoEnabled()) {
+            return;
+        }
+        summaryOf(promotion.getActivity()).reserved.increment();
+        if (sampled()) {
+            LOG.infof(
+                    "event=reserved activity=%s user=%s promotion=%s",
+                    promotion.getActivity(),
+                    promotion.getUser(),
+                    promotion.getId()
+            );
+        }
+    }
+
+    public void issued(Promotion promotion) {
+        if (!LOG.isInfoEnabled()) {
+            return;
+        }
+        summaryOf(promotion.getActivity()).issued.increment();
+        if (sampled()) {
+            LOG.infof(
+                    "event=issued activity=%s user=%s promotion=%s code=%s",
+                    promotion.getActivity(),
+                    promotion.getUser(),
+                    promotion.getId(),
+                    promotion.getCode()
+            );
+        }
+    }
+
+    /**
+     * Counts a request refused with a {@link io.archer.exception.PromotionException}, the first one of its reason
+     * in an interval is logged.
+     */
+    public void rejected(String activityId, String userId, String reason) {
+        if (!LOG.isInfoEnabled()) {
+            return;
+        }
+        Map<String, LongAdder> rejected = summaryOf(activityId).rejected;
+        LongAdder count = rejected.get(reason);
+        if (count == null) {
+            LongAdder first = new LongAdder();
+            count = rejected.putIfAbsent(reason, first);
+            if (count == null) {
+                count = first;
+                LOG.warnf("event=rejected activity=%s user=%s reason=\"%s\"", activityId, userId, reason);
+            }
+        }
+        count.increment();
+    }
+
+    void summarize() {
+        summaries.forEach((activityId, summary) -> {
+            long reserved = summary.reserved.sumThenReset();
+            long issued = summary.issued.sumThenReset();
+            StringBuilder rejected = new StringBuilder();
+            summary.rejected.forEach((reason, count) ->
+                    rejected.append(rejected.isEmpty() ? "" : ", ").append(reason).append(": ").append(count.sum())
+            );
+            // the first rejection of each reason is logged again in the next interval.
+            summary.rejected.clear();
+            if (reserved == 0 && issued == 0 && rejected.isEmpty()) {
+                summaries.remove(activityId, summary);
+                return;
+            }
+            LOG.infof(
+                    "event=summary activity=%s interval=%s reserved=%d issued=%d rejected=\"%s\"",
+                    activityId,
+                    options.events().summaryInterval(),
+                    reserved,
+                    issued,
+                    rejected
+            );
+        });
+    }
+
+    @PreDestroy
+    void close() {
+        summarizer.shutdownNow();
+        summarize();
+    }
+}
@@ -0,0 +1,183 @@
+package io.archer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The meters of the reservations and the issuing, exported at {@code /q/metrics}.
+ * <p>
+ * The meters are looked up by their tags once, then kept in maps, so the request path only pays a map lookup and
+ * an increment. The Redis steps are timed in histograms, which the percentiles are computed from at query time.
+ */
+@ApplicationScoped
+public class PromotionMetrics {
+    // the name and the tag values of a meter.
+    private record Key(String name, String first, String second) {
+    }
+
+    @Inject
+    private MeterRegistry registry;
+
+    private final ConcurrentHashMap<Key, Counter> counters = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Key, Timer> timers = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Key, DistributionSummary> summaries = new ConcurrentHashMap<>();
+
+    private Counter counter(String name, String activityId) {
+        return counters.computeIfAbsent(new Key(name, activityId, null), key ->
+                Counter.builder(
+                        name
+                ).tag(
+                        "activity", activityId
+                ).register(registry)
+        );
+    }
+
+    public void reserved(String activityId) {
+        counter("promotion.reserved", activityId).increment();
+    }
+
+    public void issued(String activityId) {
+        counter("promotion.issued", activityId).increment();
+    }
+
+    /**
+     * Counts a request refused with a {@link io.archer.exception.PromotionException}, by its reason.
+     */
+    public void rejected(String activityId, String reason) {
+        counters.computeIfAbsent(new Key("promotion.rejected", activityId, reason), key ->
+                Counter.builder(
+                        "promotion.rejected"
+                ).tag(
+                        "activity", activityId
+                ).tag(
+                        "reason", reason
+                ).register(registry)
+        ).increment();
+    }
+
+    private Timer redisTimer(String step) {
+        return timers.computeIfAbsent(new Key("promotion.redis", step, null), key ->
+                Timer.builder(
+                        "promotion.redis"
+                ).description(
+                        "the time of a step of the reservation or the issuing in Redis"
+                ).tag(
+                        "step", step
+                ).publishPercentileHistogram(
+                ).minimumExpectedValue(
+                        Duration.ofNanos(100_000)
+                ).maximumExpectedValue(
+                        Duration.ofSeconds(10)
+                ).register(registry)
+        );
+    }
+
+    /**
+     * Times a Redis step from its subscription to its item, failure or cancellation.
+     */
+    public <T> Uni<T> timed(String step, Uni<T> uni) {
+        Timer timer = redisTimer(step);
+        return Uni.createFrom().deferred(() -> {
+            long start = System.nanoTime();
+            return uni.onTermination().invoke(() ->
+                    timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS)
+            );
+        });
+    }
+
+    /**
+     * Records a pipeline of coalesced script calls, the wait of its first call and the time to send it.
+     */
+    public void coalesced(int size, long waitNanos, long sendNanos, boolean success) {
+        summaries.computeIfAbsent(new Key("promotion.redis.coalesced.size", null, null), key ->
+                DistributionSummary.builder(
+                        "promotion.redis.coalesced.size"
+                ).description(
+                        "the script calls sent in a pipeline"
+                ).register(registry)
+        ).record(size);
+        coalescedTimer("wait", true).record(waitNanos, TimeUnit.NANOSECONDS);
+        coalescedTimer("send", success).record(sendNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer coalescedTimer(String phase, boolean success) {
+        return timers.computeIfAbsent(new Key("promotion.redis.coalesced", phase, String.valueOf(success)), key ->
+                Timer.builder(
+                        "promotion.redis.coalesced"
+                ).description(
+                        "the wait of a pipeline of coalesced script calls, and the time to send it"
+                ).tag(
+                        "phase", phase
+                ).tag(
+                        "outcome", success ? "success" : "failure"
+                ).publishPercentileHistogram(
+                ).minimumExpectedValue(
+                        Duration.ofNanos(10_000)
+                ).maximumExpectedValue(
+                        Duration.ofSeconds(10)
+                ).register(registry)
+        );
+    }
+
+    /**
+     * Records how late an activity timer fires, after the time it is set for.
+     */
+    public void timerDrift(String timer, long driftMillis) {
+        timers.computeIfAbsent(new Key("promotion.timer.drift", timer, null), key ->
+                Timer.builder(
+                        "promotion.timer.drift"
+                ).description(
+                        "the delay of an activity timer after its due time"
+                ).tag(
+                        "timer", timer
+                ).publishPercentileHistogram(
+                ).register(registry)
+        ).record(Math.max(driftMillis, 0), TimeUnit.MILLISECONDS);
+    }
+
+    public void prepared(long nanos, boolean success) {
+        timers.computeIfAbsent(new Key("promotion.prepare", String.valueOf(success), null), key ->
+                Timer.builder(
+                        "promotion.prepare"
+                ).description(
+                        "the time to count the amount, draw the lottery and build the filter of an activity"
+                ).tag(
+                        "outcome", success ? "success" : "failure"
+                ).register(registry)
+        ).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records a batch written to the database, with all its retries.
+     */
+    public void persisted(String name, int size, long nanos, boolean success) {
+        timers.computeIfAbsent(new Key("promotion.persistence.batch", name, String.valueOf(success)), key ->
+                Timer.builder(
+                        "promotion.persistence.batch"
+                ).description(
+                        "the time to save a batch of promotions"
+                ).tag(
+                        "batch", name
+                ).tag(
+                        "outcome", success ? "success" : "failure"
+                ).publishPercentileHistogram(
+                ).register(registry)
+        ).record(nanos, TimeUnit.NANOSECONDS);
+        summaries.computeIfAbsent(new Key("promotion.persistence.batch.size", name, null), key ->
+                DistributionSummary.builder(
+                        "promotion.persistence.batch.size"
+                ).tag(
+                        "batch", name
+                ).register(registry)
+        ).record(size);
+    }
+}
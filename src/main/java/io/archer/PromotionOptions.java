@@ -0,0 +1,267 @@
+package io.archer;
+
+import io.quarkus.runtime.configuration.DurationConverter;
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithConverter;
+import io.smallrye.config.WithDefault;
+
+import java.time.Duration;
+
+@ConfigMapping(prefix = "promotion", namingStrategy = ConfigMapping.NamingStrategy.VERBATIM)
+public interface PromotionOptions {
+    enum IssuingMode {
+        // check the reservation and take the amount behind the `lock:<activity>` lock, step by step.
+        LOCK,
+        // check the reservation, take the amount and write the coupon in one server-side script.
+        SCRIPT,
+        // take the amount from a block leased by this node, then write the coupon in one server-side script.
+        LEASE,
+        // draw the winners when the reservation closes, then only the drawn users can take a coupon.
+        LOTTERY
+    }
+
+    enum Store {
+        // the reservations and the amount in Redis, shared by the nodes.
+        REDIS,
+        // the reservations and the amount in the memory of this node, for a single node.
+        MEMORY
+    }
+
+    @WithDefault("REDIS")
+    Store store();
+
+    Memory memory();
+
+    interface Memory {
+        // the tables the reservations of an activity are spread over by the user id, each has its own lock,
+        // and the stripes of the amount.
+        @WithDefault("16")
+        int segments();
+
+        // the reservations a table is sized for at first, it grows when it is 2/3 full.
+        @WithDefault("1024")
+        int initialCapacity();
+
+        // keep the promotions out of the heap, the table only keeps the user ids on the heap.
+        @WithDefault("false")
+        boolean offHeap();
+    }
+
+    @WithDefault("SCRIPT")
+    IssuingMode issuingMode();
+
+    // the number of hashes the reservations of an activity are spread over, by the user id.
+    // keep it while an activity is running, the users are routed by it.
+    @WithDefault("1")
+    int shards();
+
+    Code code();
+
+    interface Code {
+        enum Generator {
+            // random codes of a per-thread generator, fast but they may repeat in a large activity.
+            RANDOM,
+            // random codes of a secure generator, which can't be guessed from the issued codes.
+            SECURE,
+            // a keyed permutation of a sequence number per activity in Redis, never the same code in an activity.
+            SEQUENCE
+        }
+
+        @WithDefault("RANDOM")
+        Generator generator();
+
+        // the key of the SEQUENCE permutation, the codes follow one another for those who know it.
+        @WithDefault("0")
+        long key();
+
+        // the codes a node generates at a time, the first ones when the issuing is prepared.
+        // 0 generates each code when it is issued.
+        @WithDefault("1000")
+        int poolSize();
+    }
+
+    NearCache nearCache();
+
+    interface NearCache {
+        // keep the "no reservation" and "has been issued" answers on this node until the issuing closes,
+        // so the retries of those users are refused without a round trip.
+        @WithDefault("true")
+        boolean enabled();
+
+        // the most answers kept, the least used are evicted first.
+        @WithDefault("100000")
+        long maximumSize();
+    }
+
+    Filter filter();
+
+    interface Filter {
+        // build a Bloom filter of the reserved users when the reservation closes,
+        // so the users who did not reserve are refused in memory.
+        @WithDefault("true")
+        boolean enabled();
+
+        // the part of the users who did not reserve but are still looked up in Redis.
+        @WithDefault("0.01")
+        double falsePositiveRate();
+
+        // the most memory of the filter of an activity, a larger activity gets a higher false positive rate.
+        @WithDefault("8388608")
+        long maximumBytes();
+    }
+
+    Stock stock();
+
+    interface Stock {
+        // the interval to read the coupons left for the stock events, one read a node per activity, whatever the clients.
+        @WithConverter(DurationConverter.class)
+        @WithDefault("PT1S")
+        Duration interval();
+    }
+
+    Events events();
+
+    interface Events {
+        // log 1 of sampleRate reserved and issued promotions on its own, 0 logs none of them.
+        @WithDefault("1000")
+        int sampleRate();
+
+        // the interval of the summaries of the events of each activity,
+        // only the first rejection of each reason in an interval is logged on its own.
+        @WithConverter(DurationConverter.class)
+        @WithDefault("PT10S")
+        Duration summaryInterval();
+    }
+
+    Coalescing coalescing();
+
+    interface Coalescing {
+        // send the reserve and issue scripts of concurrent requests together, in one pipeline per shard.
+        @WithDefault("false")
+        boolean enabled();
+
+        // the most calls in a pipeline.
+        @WithDefault("64")
+        int maxSize();
+
+        // the most time a call waits for others before its pipeline is sent.
+        @WithConverter(DurationConverter.class)
+        @WithDefault("PT0.0002S")
+        Duration maxDelay();
+    }
+
+    Lease lease();
+
+    interface Lease {
+        // the number of coupons a node takes from the shared amount at a time.
+        // a larger block saves more round trips, but more coupons wait on idle nodes until the issuing closes.
+        @WithDefault("50")
+        int blockSize();
+    }
+
+    Lottery lottery();
+
+    interface Lottery {
+        // the seed of the shuffle, mixed with the activity id, the same seed always draws the same winners.
+        @WithDefault("0")
+        long seed();
+
+        // the number of reservations scanned and drawn at a time.
+        @WithDefault("1000")
+        int pageSize();
+    }
+
+    Queue queue();
+
+    interface Queue {
+        enum Overflow {
+            // refuse the new promotion.
+            REJECT,
+            // drop the oldest promotion to make room for the new one.
+            DROP_OLDEST,
+            // wait up to offerTimeout for room, then refuse the new promotion.
+            // the caller is blocked, the reactive endpoints offer on a worker thread rather than the event loop.
+            BLOCK
+        }
+
+        // the number of promotions waiting to be saved, per queue.
+        @WithDefault("10000")
+        int capacity();
+
+        // the most promotions saved in one batch.
+        @WithDefault("500")
+        int batchSize();
+
+        // the time a batch waits for more promotions once its first one arrives.
+        @WithConverter(DurationConverter.class)
+        @WithDefault("PT0.1S")
+        Duration linger();
+
+        @WithDefault("REJECT")
+        Overflow overflow();
+
+        @WithConverter(DurationConverter.class)
+        @WithDefault("PT0.01S")
+        Duration offerTimeout();
+    }
+
+    Persistence persistence();
+
+    interface Persistence {
+        // the most rows written by one multi-row INSERT.
+        @WithDefault("1000")
+        int rowsPerStatement();
+
+        // the number of times a failed batch is written again.
+        @WithDefault("3")
+        int retries();
+
+        // the wait before the first retry, doubled for each retry after.
+        @WithConverter(DurationConverter.class)
+        @WithDefault("PT0.2S")
+        Duration retryBackoff();
+    }
+
+    Journal journal();
+
+    interface Journal {
+        // write queued promotions to a local log before handing them to the queues, and replay it on startup.
+        @WithDefault("false")
+        boolean enabled();
+
+        @WithDefault("journal")
+        String directory();
+
+        // the size of a memory-mapped segment file in bytes.
+        @WithDefault("16777216")
+        int segmentSize();
+
+        // the interval to fsync the appended records, all records appended in between share one fsync.
+        @WithConverter(DurationConverter.class)
+        @WithDefault("PT0.01S")
+        Duration flushInterval();
+    }
+
+    Schedule schedule();
+
+    interface Schedule {
+        // the resolution of the activity timers.
+        @WithConverter(DurationConverter.class)
+        @WithDefault("PT0.1S")
+        Duration tick();
+
+        // the buckets of each level of the timing wheel, a power of 2.
+        @WithDefault("64")
+        int wheelSize();
+
+        // the levels of the timing wheel, 4 levels of 64 buckets of 0.1 seconds cover about 19 days.
+        @WithDefault("4")
+        int levels();
+
+        // how far the clocks of two nodes may differ, the amount is counted and the issuing closed this long after
+        // their times, when no node reserves or issues any more.
+        @WithConverter(DurationConverter.class)
+        @WithDefault("PT0.5S")
+        Duration clockSkew();
+    }
+}
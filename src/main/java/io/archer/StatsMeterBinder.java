@@ -0,0 +1,84 @@
+package io.archer;
+
+import io.archer.admission.AdmissionControl;
+import io.archer.queue.IssuedPromotionQueue;
+import io.archer.queue.PromotionQueue;
+import io.archer.queue.ReservedPromotionQueue;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exports the stats of the queues and the admission control, which are served at {@code /queues} and
+ * {@code /admission} too, as meters. The meters read the existing counters when they are scraped,
+ * nothing is added to the request path.
+ */
+@Singleton
+public class StatsMeterBinder implements MeterBinder {
+    @Inject
+    private IssuedPromotionQueue issuedQueue;
+
+    @Inject
+    private ReservedPromotionQueue reservedQueue;
+
+    @Inject
+    private AdmissionControl admission;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        bind(registry, reservedQueue);
+        bind(registry, issuedQueue);
+
+        Gauge.builder("admission.limit", admission, AdmissionControl::getLimit)
+                .register(registry);
+        Gauge.builder("admission.in.flight", admission, AdmissionControl::getInFlight)
+                .register(registry);
+        Gauge.builder("admission.latency", admission, control -> control.getAverageLatency() / 1e9)
+                .description("the average latency of the admitted requests")
+                .baseUnit("seconds")
+                .register(registry);
+        FunctionCounter.builder("admission.admitted", admission, AdmissionControl::getAdmitted)
+                .register(registry);
+        FunctionCounter.builder("admission.rejected", admission, AdmissionControl::getDuplicated)
+                .tag("reason", "duplicated")
+                .register(registry);
+        FunctionCounter.builder("admission.rejected", admission, AdmissionControl::getRateLimited)
+                .tag("reason", "rate_limited")
+                .register(registry);
+        FunctionCounter.builder("admission.rejected", admission, AdmissionControl::getOverloaded)
+                .tag("reason", "overloaded")
+                .register(registry);
+    }
+
+    private void bind(MeterRegistry registry, PromotionQueue queue) {
+        String name = queue.getName();
+        Gauge.builder("promotion.queue.depth", queue, PromotionQueue::getDepth)
+                .tag("queue", name)
+                .register(registry);
+        Gauge.builder("promotion.queue.capacity", queue, PromotionQueue::getCapacity)
+                .tag("queue", name)
+                .register(registry);
+        FunctionCounter.builder("promotion.queue.offered", queue, PromotionQueue::getOffered)
+                .tag("queue", name)
+                .register(registry);
+        FunctionCounter.builder("promotion.queue.dropped", queue, PromotionQueue::getDropped)
+                .tag("queue", name)
+                .register(registry);
+        FunctionTimer.builder(
+                        "promotion.queue.wait",
+                        queue,
+                        PromotionQueue::getTaken,
+                        q -> q.getTotalLatency().toNanos(),
+                        TimeUnit.NANOSECONDS
+                )
+                .description("the time a promotion waits in the queue")
+                .tag("queue", name)
+                .register(registry);
+    }
+}
@@ -0,0 +1,58 @@
+package io.archer;
+
+import io.archer.dba.cache.PromotionStore;
+import io.archer.dba.cache.StockNotifier;
+import io.smallrye.mutiny.Multi;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The stock of the activities watched by the clients of this node.
+ * <p>
+ * The coupons left are read once per {@code promotion.stock.interval}, and at once when an activity is sold out
+ * or restocked, then shared by all the watchers of the activity, so the reads don't grow with the clients.
+ */
+@ApplicationScoped
+public class StockMonitor {
+    @Inject
+    private PromotionStore store;
+
+    @Inject
+    private StockNotifier notifier;
+
+    @Inject
+    private PromotionOptions options;
+
+    private final ConcurrentHashMap<String, Multi<JsonObject>> streams = new ConcurrentHashMap<>();
+
+    /**
+     * @return the stock of the activity as {@code {"remaining": n, "soldOut": false}}, the stream stops reading
+     * when its last watcher leaves, and starts again with the next one.
+     */
+    public Multi<JsonObject> watch(String activityId) {
+        return streams.computeIfAbsent(activityId, id ->
+                Multi.createBy().merging().streams(
+                        Multi.createFrom().ticks().every(
+                                options.stock().interval()
+                        ).onOverflow().drop().map(tick -> id),
+                        notifier.changes().select().where(id::equals)
+                ).onItem().transformToUniAndConcatenate(changed ->
+                        // nothing is sent before the amount is counted.
+                        store.remaining(id)
+                ).map(remaining ->
+                        Json.createObjectBuilder()
+                                .add(
+                                        "remaining",
+                                        remaining
+                                ).add(
+                                        "soldOut",
+                                        store.isSoldOut(id)
+                                ).build()
+                ).broadcast().withCancellationAfterLastSubscriberDeparture().toAllSubscribers()
+        );
+    }
+}
@@ -0,0 +1,179 @@
+package io.archer.admission;
+
+import io.archer.AdmissionOptions;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.Getter;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides which requests of a node may go on to Redis.
+ * <p>
+ * A request is refused when the same user already has the same request in flight, when the token bucket of its
+ * activity is empty, or when the node has reached its concurrency limit. The limit follows the latency of the
+ * admitted requests, which is mostly the Redis round trips: it is lowered by a tenth while the average latency is
+ * above the target, and raised while it is below and the requests in flight come near the limit. So an overloaded
+ * Redis makes the node refuse requests at once, instead of queueing them until they time out.
+ */
+@ApplicationScoped
+public class AdmissionControl {
+    public enum Rejection {
+        // the same request of the user is in flight.
+        DUPLICATED,
+        // the activity is asked more than its rate.
+        RATE_LIMITED,
+        // the node has reached its concurrency limit.
+        OVERLOADED
+    }
+
+    private record Key(String operation, String activityId, String userId) {
+    }
+
+    /**
+     * The answer to a request, a granted permit must be released when the request completes.
+     */
+    public final class Permit {
+        private final Key key;
+        private final long start;
+        @Getter
+        private final Rejection rejection;
+        // the seconds to wait before trying again.
+        @Getter
+        private final long retryAfter;
+
+        private Permit(Key key, long start, Rejection rejection, long retryAfter) {
+            this.key = key;
+            this.start = start;
+            this.rejection = rejection;
+            this.retryAfter = retryAfter;
+        }
+
+        public boolean isGranted() {
+            return rejection == null;
+        }
+
+        public void release() {
+            if (isGranted()) {
+                AdmissionControl.this.release(key, System.nanoTime() - start);
+            }
+        }
+    }
+
+    // the time between two changes of the limit.
+    private static final long ADJUST_INTERVAL = TimeUnit.MILLISECONDS.toNanos(100);
+
+    @Inject
+    private AdmissionOptions options;
+
+    private final Set<Key> inFlightUsers = ConcurrentHashMap.newKeySet();
+    private final ConcurrentHashMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    // the most requests in flight since the last change of the limit.
+    private final AtomicInteger peak = new AtomicInteger();
+    private final AtomicLong averageLatency = new AtomicLong();
+    private final AtomicLong lastAdjust = new AtomicLong(System.nanoTime());
+    private volatile int limit;
+
+    private final AtomicLong admitted = new AtomicLong();
+    private final AtomicLong duplicated = new AtomicLong();
+    private final AtomicLong rateLimited = new AtomicLong();
+    private final AtomicLong overloaded = new AtomicLong();
+
+    @PostConstruct
+    void init() {
+        limit = options.concurrency().initialLimit();
+    }
+
+    public Permit admit(String operation, String activityId, String userId) {
+        Key key = new Key(operation, activityId, userId);
+        long now = System.nanoTime();
+        if (!options.enabled()) {
+            return new Permit(null, now, null, 0);
+        }
+        if (!inFlightUsers.add(key)) {
+            duplicated.incrementAndGet();
+            return new Permit(key, now, Rejection.DUPLICATED, 1);
+        }
+        AdmissionOptions.Rate rate = options.rate();
+        long wait = buckets.computeIfAbsent(
+                activityId,
+                id -> new TokenBucket(rate.perSecond(), rate.burst(), now)
+        ).tryAcquire(now);
+        if (wait > 0) {
+            inFlightUsers.remove(key);
+            rateLimited.incrementAndGet();
+            return new Permit(key, now, Rejection.RATE_LIMITED, Math.max(TimeUnit.NANOSECONDS.toSeconds(wait), 1));
+        }
+        int current = inFlight.incrementAndGet();
+        if (current > limit) {
+            inFlight.decrementAndGet();
+            inFlightUsers.remove(key);
+            overloaded.incrementAndGet();
+            return new Permit(key, now, Rejection.OVERLOADED, 1);
+        }
+        peak.accumulateAndGet(current, Math::max);
+        admitted.incrementAndGet();
+        return new Permit(key, now, null, 0);
+    }
+
+    private void release(Key key, long latency) {
+        if (key == null) {
+            return;
+        }
+        inFlightUsers.remove(key);
+        inFlight.decrementAndGet();
+        // an exponentially weighted average over about the last 16 requests.
+        averageLatency.accumulateAndGet(latency, (average, sample) -> average + ((sample - average) >> 4));
+
+        long now = System.nanoTime();
+        long last = lastAdjust.get();
+        if (now - last >= ADJUST_INTERVAL && lastAdjust.compareAndSet(last, now)) {
+            adjust();
+        }
+    }
+
+    private void adjust() {
+        AdmissionOptions.Concurrency concurrency = options.concurrency();
+        int used = peak.getAndSet(inFlight.get());
+        if (averageLatency.get() > concurrency.targetLatency().toNanos()) {
+            limit = Math.max(concurrency.minLimit(), limit - Math.max(limit / 10, 1));
+        } else if (used >= limit * 3 / 4) {
+            limit = Math.min(concurrency.maxLimit(), limit + Math.max(limit / 16, 1));
+        }
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getAverageLatency() {
+        return averageLatency.get();
+    }
+
+    public long getAdmitted() {
+        return admitted.get();
+    }
+
+    public long getDuplicated() {
+        return duplicated.get();
+    }
+
+    public long getRateLimited() {
+        return rateLimited.get();
+    }
+
+    public long getOverloaded() {
+        return overloaded.get();
+    }
+}
@@ -0,0 +1,41 @@
+package io.archer.admission;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A token bucket shared by the threads of a node without locking.
+ * <p>
+ * It keeps the time the next token would arrive if the bucket were empty, instead of the tokens, which is the
+ * generic cell rate algorithm: a request is admitted unless that time is more than a full bucket ahead.
+ */
+class TokenBucket {
+    // the time to refill one token, in nanos.
+    private final long interval;
+    // how far the next token may run ahead of now, the burst.
+    private final long tolerance;
+    private final AtomicLong next;
+
+    TokenBucket(int perSecond, int burst, long now) {
+        interval = 1_000_000_000L / Math.max(perSecond, 1);
+        tolerance = interval * (Math.max(burst, 1) - 1);
+        next = new AtomicLong(now);
+    }
+
+    /**
+     * @return 0 if a token is taken, otherwise the nanos to wait for one.
+     */
+    public long tryAcquire(long now) {
+        while (true) {
+            long current = next.get();
+            long wait = current - tolerance - now;
+            if (wait > 0) {
+                return wait;
+            }
+            // an idle bucket doesn't save more than a burst.
+            long from = current - now < 0 ? now : current;
+            if (next.compareAndSet(current, from + interval)) {
+                return 0;
+            }
+        }
+    }
+}
@@ -1,112 +1,156 @@
 package io.archer.api;
 
 import io.archer.ActivityOptions;
+import io.archer.ActivityRegistry;
 import io.archer.PromotionChecker;
-import io.archer.dba.cache.PromotionCache;
+import io.archer.PromotionMetrics;
+import io.archer.StockMonitor;
+import io.archer.admission.AdmissionControl;
+import io.archer.dba.cache.PromotionStore;
 import io.archer.exception.PromotionException;
+import io.archer.model.Activity;
+import io.archer.model.Promotion;
 import io.archer.queue.IssuedPromotionQueue;
+import io.archer.queue.PromotionQueue;
 import io.archer.queue.ReservedPromotionQueue;
 import io.quarkus.logging.Log;
+import io.quarkus.virtual.threads.VirtualThreads;
+import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
 import jakarta.inject.Inject;
 import jakarta.json.Json;
+import jakarta.json.JsonArray;
+import jakarta.json.JsonArrayBuilder;
 import jakarta.json.JsonObject;
+import jakarta.json.JsonObjectBuilder;
+import jakarta.json.JsonValue;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import org.jboss.resteasy.reactive.RestStreamElementType;
 
+import java.time.Duration;
 import java.time.Instant;
-import java.time.LocalDate;
-import java.time.OffsetTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 @Path("/activities")
 public class ActivityResource {
+    // the body of the issue of a sold-out activity, built once.
+    private static final JsonObject SOLD_OUT = Json.createObjectBuilder()
+            .add(
+                    "message",
+                    "the promotion amount is ran out."
+            ).build();
 
     @Inject
-    private ActivityOptions options;
+    private ActivityRegistry registry;
 
     @Inject
     private IssuedPromotionQueue issuedQueue;
 
     @Inject
-    private PromotionCache cache;
+    private PromotionStore store;
 
     @Inject
-    private PromotionChecker checker;
+    private ReservedPromotionQueue reservedQueue;
 
     @Inject
-    private ReservedPromotionQueue reservedQueue;
+    private StockMonitor monitor;
 
+    @Inject
+    private AdmissionControl admission;
 
-    private boolean isAvailable(OffsetTime start, OffsetTime end) {
-        return !OffsetTime.now().isAfter(start) || !OffsetTime.now().isBefore(end);
-    }
+    @Inject
+    private PromotionMetrics metrics;
+
+    @Inject
+    private ActivityOptions options;
+
+    @Inject
+    private IdempotencyCache idempotency;
+
+    @Inject
+    private PromotionChecker checker;
+
+    // the threads of the BLOCKING execution, virtual threads from Java 21, the worker pool before.
+    @Inject
+    @VirtualThreads
+    private ExecutorService vThreads;
 
     @POST
     @Path("/{activityId}/reserve")
     @Consumes("application/json")
     @Produces("application/json")
-    public Uni<Response> reserve(@PathParam("activityId") String activityId, JsonObject body) {
-        if (
-                isAvailable(
-                        options.reservingTime(),
-                        options.reservingTime().plus(options.reservingDuration())
-                )
-        ) {
+    public Uni<Response> reserve(
+            @PathParam("activityId") String activityId,
+            @HeaderParam(IdempotencyCache.HEADER) String idempotencyKey,
+            JsonObject body
+    ) {
+        Activity activity = registry.get(activityId);
+        if (activity == null) {
             return Uni.createFrom().item(
-                    Response.status(Response.Status.FORBIDDEN)
-                            .entity(
-                                    Json.createObjectBuilder()
-                                            .add(
-                                                    "message",
-                                                    "The activity is not available for reservation."
-                                            ).build()
-                            ).build());
-        }
-        return cache.reserve(
-                activityId,
-                body.getString("user")
-        ).chain(promotion -> {
-            reservedQueue.offer(promotion);
+                    message(
+                            Response.Status.NOT_FOUND,
+                            "The activity is not found."
+                    )
+            );
+        }
+        if (!isIn(activity, Activity.Phase.RESERVING)) {
             return Uni.createFrom().item(
-                    Response.ok(
-                            Json.createObjectBuilder()
-                                    .add(
-                                            "id",
-                                            promotion.getId().toString()
-                                    ).add(
-                                            "reservedTime",
-                                            DateTimeFormatter.ISO_INSTANT.format(promotion.getReservedTime())
-                                    ).build()
-                    ).build());
-        }).invoke(r -> {
-            long delay = (
-                    options.reservingTime()
-                            .plus(options.reservingDuration())
-                            .toEpochSecond(LocalDate.now()) * 1000
-            ) - Instant.now().toEpochMilli();
-            checker.setTimer(
-                    activityId,
-                    delay < 0 ? 0 : delay
+                    message(
+                            Response.Status.FORBIDDEN,
+                            "The activity is not available for reservation."
+                    )
             );
+        }
+        String userId = body.getString("user", null);
+        if (!isUser(userId)) {
+            return Uni.createFrom().item(invalidUser());
+        }
+        Response replayed = idempotency.get(activityId, idempotencyKey, userId);
+        if (replayed != null) {
+            return Uni.createFrom().item(replayed);
+        }
+        AdmissionControl.Permit permit = admission.admit("reserve", activityId, userId);
+        if (!permit.isGranted()) {
+            return Uni.createFrom().item(rejected(permit));
+        }
+        if (options.execution() == ActivityOptions.Execution.BLOCKING) {
+            return Uni.createFrom().item(() ->
+                    reserveBlocking(activityId, idempotencyKey, userId, permit)
+            ).runSubscriptionOn(vThreads);
+        }
+        return offering(store.reserveIfAbsent(
+                activityId,
+                userId
+        ), reservedQueue).chain(outcome -> {
+            // a reservation answered again has been queued by the request which wrote it.
+            if (outcome.created()) {
+                reservedQueue.offer(outcome.promotion());
+            }
+            return Uni.createFrom().item(reserved(outcome.promotion()));
         }).onFailure(PromotionException.class).recoverWithItem(cause ->
-                Response.status(Response.Status.FORBIDDEN)
-                        .entity(
-                                Json.createObjectBuilder()
-                                        .add(
-                                                "message",
-                                                cause.getMessage()
-                                        ).build()
-                        ).build()
+                message(
+                        Response.Status.FORBIDDEN,
+                        cause.getMessage()
+                )
         ).onFailure().recoverWithItem(cause ->
-                Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                        .entity(
-                                Json.createObjectBuilder()
-                                        .add(
-                                                "message",
-                                                cause.getMessage()
-                                        ).build()
-                        ).build()
+                message(
+                        Response.Status.INTERNAL_SERVER_ERROR,
+                        cause.getMessage()
+                )
+        ).invoke(response ->
+                idempotency.put(activityId, idempotencyKey, userId, response)
+        ).onTermination().invoke(
+                permit::release
         );
     }
 
@@ -115,56 +159,423 @@ public class ActivityResource {
     @Consumes("application/json")
     @Produces("application/json")
     public Uni<Response> issue(@PathParam("activityId") String activityId, JsonObject body) {
-        if (
-                isAvailable(
-                        options.issuingTime(),
-                        options.issuingTime().plus(options.issuingDuration())
-                )
-        ) {
+        Activity activity = registry.get(activityId);
+        if (activity == null) {
+            return Uni.createFrom().item(
+                    message(
+                            Response.Status.NOT_FOUND,
+                            "The activity is not found."
+                    )
+            );
+        }
+        if (!isIn(activity, Activity.Phase.ISSUING)) {
             return Uni.createFrom().item(
-                    Response.status(Response.Status.FORBIDDEN)
-                            .entity(
-                                    Json.createObjectBuilder()
-                                            .add(
-                                                    "message",
-                                                    "The activity is not available for issuing."
-                                            ).build()
-                            ).build());
-        }
-        return cache.issue(
+                    message(
+                            Response.Status.FORBIDDEN,
+                            "The activity is not available for issuing."
+                    )
+            );
+        }
+        if (store.isSoldOut(activityId)) {
+            metrics.rejected(activityId, "sold_out");
+            return Uni.createFrom().item(
+                    Response.status(Response.Status.FORBIDDEN).entity(SOLD_OUT).build()
+            );
+        }
+        String userId = body.getString("user", null);
+        if (!isUser(userId)) {
+            return Uni.createFrom().item(invalidUser());
+        }
+        AdmissionControl.Permit permit = admission.admit("issue", activityId, userId);
+        if (!permit.isGranted()) {
+            return Uni.createFrom().item(rejected(permit));
+        }
+        if (options.execution() == ActivityOptions.Execution.BLOCKING) {
+            return Uni.createFrom().item(() ->
+                    issueBlocking(activityId, userId, permit)
+            ).runSubscriptionOn(vThreads);
+        }
+        return offering(store.issue(
                 activityId,
-                body.getString("user")
-        ).chain(promotion -> {
+                userId
+        ), issuedQueue).chain(promotion -> {
             issuedQueue.offer(promotion);
-            return Uni.createFrom().item(
-                    Response.ok(
-                            Json.createObjectBuilder()
-                                    .add(
-                                            "code",
-                                            promotion.getCode()
-                                    ).add(
-                                            "issuedTime",
-                                            DateTimeFormatter.ISO_INSTANT.format(promotion.getIssuedTime())
-                                    ).build()
-                    ).build());
+            return Uni.createFrom().item(issued(promotion));
         }).onFailure(PromotionException.class).recoverWithItem(cause ->
-                Response.status(Response.Status.FORBIDDEN)
-                        .entity(
-                                Json.createObjectBuilder()
-                                        .add(
-                                                "message",
-                                                cause.getMessage()
-                                        ).build()
-                        ).build()
+                message(
+                        Response.Status.FORBIDDEN,
+                        cause.getMessage()
+                )
         ).onFailure().recoverWithItem(cause ->
-                Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                        .entity(
-                                Json.createObjectBuilder()
-                                        .add(
-                                                "message",
-                                                cause.getMessage()
-                                        ).build()
+                message(
+                        Response.Status.INTERNAL_SERVER_ERROR,
+                        cause.getMessage()
+                )
+        ).onTermination().invoke(
+                permit::release
+        );
+    }
+
+    // the result of the store, moved to a worker thread when it is offered to a queue which may wait for room,
+    // rather than parking the event loop.
+    private static <T> Uni<T> offering(Uni<T> result, PromotionQueue queue) {
+        return queue.blocks() ? result.emitOn(Infrastructure.getDefaultWorkerPool()) : result;
+    }
+
+    // the phase moved by the timers, caught up with the clock only when it is not the one expected.
+    private boolean isIn(Activity activity, Activity.Phase phase) {
+        return activity.getPhase() == phase || checker.catchUp(activity) == phase;
+    }
+
+    // the reserve of the BLOCKING execution, which waits for the store on the calling thread.
+    private Response reserveBlocking(
+            String activityId,
+            String idempotencyKey,
+            String userId,
+            AdmissionControl.Permit permit
+    ) {
+        Response response;
+        try {
+            PromotionStore.Outcome outcome = store.reserveIfAbsent(activityId, userId).await().indefinitely();
+            // a reservation answered again has been queued by the request which wrote it.
+            if (outcome.created()) {
+                reservedQueue.offer(outcome.promotion());
+            }
+            response = reserved(outcome.promotion());
+        } catch (RuntimeException e) {
+            response = failed(e);
+        } finally {
+            permit.release();
+        }
+        idempotency.put(activityId, idempotencyKey, userId, response);
+        return response;
+    }
+
+    // the issue of the BLOCKING execution, which waits for the store on the calling thread.
+    private Response issueBlocking(String activityId, String userId, AdmissionControl.Permit permit) {
+        try {
+            Promotion promotion = store.issue(activityId, userId).await().indefinitely();
+            issuedQueue.offer(promotion);
+            return issued(promotion);
+        } catch (RuntimeException e) {
+            return failed(e);
+        } finally {
+            permit.release();
+        }
+    }
+
+    // the answer of a store call which failed, a PromotionException is a refusal, the rest is a server error.
+    private static Response failed(RuntimeException e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        return message(
+                cause instanceof PromotionException
+                        ? Response.Status.FORBIDDEN
+                        : Response.Status.INTERNAL_SERVER_ERROR,
+                cause.getMessage()
+        );
+    }
+
+    @POST
+    @Path("/{activityId}/reserve/batch")
+    @Consumes("application/json")
+    @Produces("application/json")
+    public Uni<Response> reserveAll(@PathParam("activityId") String activityId, JsonObject body) {
+        Activity activity = registry.get(activityId);
+        if (activity == null) {
+            return Uni.createFrom().item(
+                    message(
+                            Response.Status.NOT_FOUND,
+                            "The activity is not found."
+                    )
+            );
+        }
+        if (!isIn(activity, Activity.Phase.RESERVING)) {
+            return Uni.createFrom().item(
+                    message(
+                            Response.Status.FORBIDDEN,
+                            "The activity is not available for reservation."
+                    )
+            );
+        }
+        List<String> userIds = users(body);
+        if (userIds == null) {
+            return Uni.createFrom().item(invalidBatch());
+        }
+        return batch(
+                "reserve",
+                activityId,
+                userIds,
+                (id, users) -> offering(store.reserveAll(id, users), reservedQueue),
+                outcome -> {
+                    if (outcome.created()) {
+                        reservedQueue.offer(outcome.promotion());
+                    }
+                    return reservation(outcome.promotion());
+                }
+        );
+    }
+
+    @POST
+    @Path("/{activityId}/issue/batch")
+    @Consumes("application/json")
+    @Produces("application/json")
+    public Uni<Response> issueAll(@PathParam("activityId") String activityId, JsonObject body) {
+        Activity activity = registry.get(activityId);
+        if (activity == null) {
+            return Uni.createFrom().item(
+                    message(
+                            Response.Status.NOT_FOUND,
+                            "The activity is not found."
+                    )
+            );
+        }
+        if (!isIn(activity, Activity.Phase.ISSUING)) {
+            return Uni.createFrom().item(
+                    message(
+                            Response.Status.FORBIDDEN,
+                            "The activity is not available for issuing."
+                    )
+            );
+        }
+        List<String> userIds = users(body);
+        if (userIds == null) {
+            return Uni.createFrom().item(invalidBatch());
+        }
+        if (store.isSoldOut(activityId)) {
+            // the result of each user, like the users refused by the store.
+            JsonObject[] results = new JsonObject[userIds.size()];
+            for (int i = 0; i < results.length; i++) {
+                metrics.rejected(activityId, "sold_out");
+                results[i] = result(userIds.get(i), Response.Status.FORBIDDEN.getStatusCode(), SOLD_OUT).build();
+            }
+            return Uni.createFrom().item(results(results));
+        }
+        return batch(
+                "issue",
+                activityId,
+                userIds,
+                (id, users) -> offering(store.issueAll(id, users), issuedQueue),
+                outcome -> {
+                    issuedQueue.offer(outcome.promotion());
+                    return coupon(outcome.promotion());
+                }
+        );
+    }
+
+    /**
+     * Admits the users of a batch one by one, runs the admitted users at once, and answers the result of each user
+     * in the order of the request.
+     */
+    private Uni<Response> batch(
+            String operation,
+            String activityId,
+            List<String> userIds,
+            BiFunction<String, List<String>, Uni<List<PromotionStore.Outcome>>> run,
+            Function<PromotionStore.Outcome, JsonObject> done
+    ) {
+        JsonObject[] results = new JsonObject[userIds.size()];
+        List<AdmissionControl.Permit> permits = new ArrayList<>();
+        List<String> admitted = new ArrayList<>();
+        List<Integer> indexes = new ArrayList<>();
+        for (int i = 0; i < userIds.size(); i++) {
+            String userId = userIds.get(i);
+            AdmissionControl.Permit permit = admission.admit(operation, activityId, userId);
+            if (!permit.isGranted()) {
+                Response response = rejected(permit);
+                results[i] = result(userId, response.getStatus(), (JsonObject) response.getEntity())
+                        .add("retryAfter", permit.getRetryAfter())
+                        .build();
+                continue;
+            }
+            permits.add(permit);
+            admitted.add(userId);
+            indexes.add(i);
+        }
+        return run.apply(
+                activityId,
+                admitted
+        ).map(outcomes -> {
+            for (int i = 0; i < outcomes.size(); i++) {
+                PromotionStore.Outcome outcome = outcomes.get(i);
+                Response response = outcome.promotion() != null
+                        ? Response.ok(done.apply(outcome)).build()
+                        : message(Response.Status.FORBIDDEN, outcome.error());
+                results[indexes.get(i)] = result(
+                        outcome.userId(),
+                        response.getStatus(),
+                        (JsonObject) response.getEntity()
+                ).build();
+            }
+            return results(results);
+        }).onFailure().recoverWithItem(cause ->
+                message(
+                        Response.Status.INTERNAL_SERVER_ERROR,
+                        cause.getMessage()
+                )
+        ).onTermination().invoke(() ->
+                permits.forEach(AdmissionControl.Permit::release)
+        );
+    }
+
+    // the answer of a batch, the results of the users in the order of the request.
+    private static Response results(JsonObject[] results) {
+        JsonArrayBuilder array = Json.createArrayBuilder();
+        for (JsonObject result : results) {
+            array.add(result);
+        }
+        return Response.ok(
+                Json.createObjectBuilder()
+                        .add(
+                                "results",
+                                array
                         ).build()
+        ).build();
+    }
+
+    // a user id which fits the promotion table, and the journal record sized by it.
+    private static boolean isUser(String userId) {
+        return userId != null && !userId.isEmpty() && userId.length() <= Promotion.MAX_ID_LENGTH;
+    }
+
+    private static Response invalidUser() {
+        return message(
+                Response.Status.BAD_REQUEST,
+                "The user must have 1 to " + Promotion.MAX_ID_LENGTH + " characters."
+        );
+    }
+
+    /**
+     * @return the users of a batch, or null if they are missing or more than {@code activity.maxBatchSize},
+     * or a user is not valid.
+     */
+    private List<String> users(JsonObject body) {
+        if (body == null || !(body.get("users") instanceof JsonArray users)) {
+            return null;
+        }
+        if (users.isEmpty() || users.size() > options.maxBatchSize()) {
+            return null;
+        }
+        List<String> userIds = new ArrayList<>(users.size());
+        for (int i = 0; i < users.size(); i++) {
+            if (users.isNull(i)
+                    || users.get(i).getValueType() != JsonValue.ValueType.STRING
+                    || !isUser(users.getString(i))) {
+                return null;
+            }
+            userIds.add(users.getString(i));
+        }
+        return userIds;
+    }
+
+    private Response invalidBatch() {
+        return message(
+                Response.Status.BAD_REQUEST,
+                "The batch must have 1 to " + options.maxBatchSize() + " users, of 1 to "
+                        + Promotion.MAX_ID_LENGTH + " characters each."
+        );
+    }
+
+    @GET
+    @Path("/{activityId}/stock")
+    @Produces(MediaType.SERVER_SENT_EVENTS)
+    @RestStreamElementType(MediaType.APPLICATION_JSON)
+    public Multi<JsonObject> stock(@PathParam("activityId") String activityId) {
+        Activity activity = registry.get(activityId);
+        if (activity == null) {
+            throw new NotFoundException(
+                    message(
+                            Response.Status.NOT_FOUND,
+                            "The activity is not found."
+                    )
+            );
+        }
+        Duration left = Duration.between(Instant.now(), activity.getIssuingEnd());
+        if (left.isNegative() || left.isZero()) {
+            throw new ForbiddenException(
+                    message(
+                            Response.Status.FORBIDDEN,
+                            "The activity is not available for issuing."
+                    )
+            );
+        }
+        // send the stock when it changes, until it is sold out or the issuing closes.
+        AtomicBoolean soldOut = new AtomicBoolean();
+        return monitor.watch(
+                activityId
+        ).select().first(stock ->
+                !soldOut.getAndSet(stock.getBoolean("soldOut"))
+        ).skip().repetitions().select().first(
+                left
         );
     }
+
+    static JsonObject reservation(Promotion promotion) {
+        return Json.createObjectBuilder()
+                .add(
+                        "id",
+                        promotion.getId().toString()
+                ).add(
+                        "reservedTime",
+                        DateTimeFormatter.ISO_INSTANT.format(promotion.getReservedTime())
+                ).build();
+    }
+
+    static JsonObject coupon(Promotion promotion) {
+        return Json.createObjectBuilder()
+                .add(
+                        "code",
+                        promotion.getCode()
+                ).add(
+                        "issuedTime",
+                        DateTimeFormatter.ISO_INSTANT.format(promotion.getIssuedTime())
+                ).build();
+    }
+
+    static Response reserved(Promotion promotion) {
+        return Response.ok(reservation(promotion)).build();
+    }
+
+    static Response issued(Promotion promotion) {
+        return Response.ok(coupon(promotion)).build();
+    }
+
+    // the result of a user in a batch, the fields of the single request with the user and the status.
+    static JsonObjectBuilder result(String userId, int status, JsonObject fields) {
+        JsonObjectBuilder result = Json.createObjectBuilder()
+                .add("user", userId)
+                .add("status", status);
+        fields.forEach(result::add);
+        return result;
+    }
+
+    static Response rejected(AdmissionControl.Permit permit) {
+        Response response = switch (permit.getRejection()) {
+            case DUPLICATED -> message(
+                    Response.Status.TOO_MANY_REQUESTS,
+                    "The request is being processed."
+            );
+            case RATE_LIMITED -> message(
+                    Response.Status.TOO_MANY_REQUESTS,
+                    "Too many requests for the activity."
+            );
+            case OVERLOADED -> message(
+                    Response.Status.SERVICE_UNAVAILABLE,
+                    "The service is busy."
+            );
+        };
+        response.getHeaders().putSingle("Retry-After", String.valueOf(permit.getRetryAfter()));
+        return response;
+    }
+
+    static Response message(Response.Status status, String message) {
+        return Response.status(status)
+                .type(MediaType.APPLICATION_JSON)
+                .entity(
+                        Json.createObjectBuilder()
+                                .add(
+                                        "message",
+                                        message
+                                ).build()
+                ).build();
+    }
 }
@@ -0,0 +1,32 @@
+package io.archer.api;
+
+import io.archer.admission.AdmissionControl;
+import jakarta.inject.Inject;
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+
+import java.time.Duration;
+
+@Path("/admission")
+public class AdmissionResource {
+
+    @Inject
+    private AdmissionControl admission;
+
+    @GET
+    @Produces("application/json")
+    public JsonObject stats() {
+        return Json.createObjectBuilder()
+                .add("limit", admission.getLimit())
+                .add("inFlight", admission.getInFlight())
+                .add("averageLatency", Duration.ofNanos(admission.getAverageLatency()).toString())
+                .add("admitted", admission.getAdmitted())
+                .add("duplicated", admission.getDuplicated())
+                .add("rateLimited", admission.getRateLimited())
+                .add("overloaded", admission.getOverloaded())
+                .build();
+    }
+}
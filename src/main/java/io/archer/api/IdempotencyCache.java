@@ -0,0 +1,84 @@
+package io.archer.api;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.archer.ActivityOptions;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+/**
+ * The answers of the reserve requests with an {@code Idempotency-Key} header, kept on this node, so the retries of
+ * a client are answered again without a round trip.
+ * <p>
+ * Only the final answers are kept, a reservation or a refusal, a failed request is tried again. A key belongs to
+ * the user of its first request, the other users are refused. A retry sent to another node is reserved again,
+ * which answers the same reservation.
+ */
+@ApplicationScoped
+public class IdempotencyCache {
+    public static final String HEADER = "Idempotency-Key";
+
+    private record Key(String activityId, String key) {
+    }
+
+    private record Answer(String userId, int status, JsonObject body) {
+    }
+
+    @Inject
+    private ActivityOptions options;
+
+    private Cache<Key, Answer> answers;
+
+    @PostConstruct
+    void init() {
+        answers = Caffeine.newBuilder()
+                .maximumSize(options.idempotency().maximumSize())
+                .expireAfterWrite(options.idempotency().expiry())
+                .build();
+    }
+
+    /**
+     * @return the answer kept for the key, or null if the request must be run.
+     */
+    public Response get(String activityId, String key, String userId) {
+        if (key == null || key.isBlank()) {
+            return null;
+        }
+        Answer answer = answers.getIfPresent(new Key(activityId, key));
+        if (answer == null) {
+            return null;
+        }
+        if (!answer.userId().equals(userId)) {
+            // 422, the key is reused with another request, which has no constant in Response.Status.
+            return Response.status(422)
+                    .type(MediaType.APPLICATION_JSON)
+                    .entity(
+                            Json.createObjectBuilder()
+                                    .add(
+                                            "message",
+                                            "The Idempotency-Key is used by another user."
+                                    ).build()
+                    ).build();
+        }
+        return Response.status(answer.status())
+                .type(MediaType.APPLICATION_JSON)
+                .entity(answer.body())
+                .header("Idempotent-Replayed", "true")
+                .build();
+    }
+
+    public void put(String activityId, String key, String userId, Response response) {
+        if (key == null || key.isBlank()) {
+            return;
+        }
+        int status = response.getStatus();
+        if (status == Response.Status.OK.getStatusCode() || status == Response.Status.FORBIDDEN.getStatusCode()) {
+            answers.put(new Key(activityId, key), new Answer(userId, status, (JsonObject) response.getEntity()));
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package io.archer.api;
+
+import io.archer.queue.IssuedPromotionQueue;
+import io.archer.queue.PromotionQueue;
+import io.archer.queue.ReservedPromotionQueue;
+import jakarta.inject.Inject;
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+
+@Path("/queues")
+public class QueueResource {
+
+    @Inject
+    private IssuedPromotionQueue issuedQueue;
+
+    @Inject
+    private ReservedPromotionQueue reservedQueue;
+
+    private JsonObject stats(PromotionQueue queue) {
+        return Json.createObjectBuilder()
+                .add("capacity", queue.getCapacity())
+                .add("depth", queue.getDepth())
+                .add("offered", queue.getOffered())
+                .add("dropped", queue.getDropped())
+                .add("taken", queue.getTaken())
+                .add("averageLatency", queue.getAverageLatency().toString())
+                .add("maxLatency", queue.getMaxLatency().toString())
+                .build();
+    }
+
+    @GET
+    @Produces("application/json")
+    public JsonObject stats() {
+        return Json.createObjectBuilder()
+                .add(reservedQueue.getName(), stats(reservedQueue))
+                .add(issuedQueue.getName(), stats(issuedQueue))
+                .build();
+    }
+}
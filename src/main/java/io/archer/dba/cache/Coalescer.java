@@ -0,0 +1,146 @@
+package io.archer.dba.cache;
+
+import io.smallrye.mutiny.Uni;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Collects the operations of concurrent callers and sends them together.
+ * <p>
+ * The first operation of a batch starts a timer of {@code maxDelay}, the batch is sent when the timer fires or
+ * {@code maxSize} operations are collected, whichever comes first, so an operation waits at most {@code maxDelay}
+ * longer than on its own. Each caller gets the result of its own operation, a batch which fails fails all its
+ * operations.
+ */
+class Coalescer<T, R> {
+    /**
+     * Told about each batch sent.
+     */
+    interface Listener {
+        /**
+         * @param waitNanos the time the first operation of the batch has waited.
+         * @param sendNanos the time from sending the batch to its results.
+         */
+        void flushed(int size, long waitNanos, long sendNanos, boolean success);
+    }
+
+    private record Operation<T, R>(T item, CompletableFuture<R> result) {
+    }
+
+    private final int maxSize;
+    private final long maxDelayNanos;
+    private final Function<List<T>, Uni<List<R>>> send;
+    private final Listener listener;
+    private final ScheduledExecutorService timer;
+
+    // guarded by this.
+    private List<Operation<T, R>> pending = new ArrayList<>();
+    private long pendingSince;
+    private ScheduledFuture<?> scheduled;
+
+    Coalescer(int maxSize, long maxDelayNanos, Function<List<T>, Uni<List<R>>> send, Listener listener) {
+        this.maxSize = maxSize;
+        this.maxDelayNanos = maxDelayNanos;
+        this.send = send;
+        this.listener = listener;
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "promotion-coalescer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @return the result of the operation, which is collected when the Uni is subscribed.
+     */
+    public Uni<R> submit(T item) {
+        return Uni.createFrom().deferred(() -> {
+            Operation<T, R> operation = new Operation<>(item, new CompletableFuture<>());
+            List<Operation<T, R>> full = null;
+            long since;
+            synchronized (this) {
+                pending.add(operation);
+                if (pending.size() == 1) {
+                    pendingSince = System.nanoTime();
+                }
+                since = pendingSince;
+                if (pending.size() >= maxSize) {
+                    full = take();
+                } else if (pending.size() == 1) {
+                    scheduled = timer.schedule(this::flush, maxDelayNanos, TimeUnit.NANOSECONDS);
+                }
+            }
+            if (full != null) {
+                send(full, since);
+            }
+            return Uni.createFrom().completionStage(operation.result());
+        });
+    }
+
+    // guarded by this.
+    private List<Operation<T, R>> take() {
+        List<Operation<T, R>> batch = pending;
+        pending = new ArrayList<>(maxSize);
+        if (scheduled != null) {
+            scheduled.cancel(false);
+            scheduled = null;
+        }
+        return batch;
+    }
+
+    /**
+     * Sends the operations collected so far.
+     */
+    void flush() {
+        List<Operation<T, R>> batch;
+        long since;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            since = pendingSince;
+            batch = take();
+        }
+        send(batch, since);
+    }
+
+    private void send(List<Operation<T, R>> batch, long since) {
+        List<T> items = new ArrayList<>(batch.size());
+        for (Operation<T, R> operation : batch) {
+            items.add(operation.item());
+        }
+        long start = System.nanoTime();
+        Uni<List<R>> sending;
+        try {
+            sending = send.apply(items);
+        } catch (RuntimeException e) {
+            sending = Uni.createFrom().failure(e);
+        }
+        sending.subscribe().with(results -> {
+            listener.flushed(batch.size(), start - since, System.nanoTime() - start, true);
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).result().complete(results.get(i));
+            }
+        }, cause -> {
+            listener.flushed(batch.size(), start - since, System.nanoTime() - start, false);
+            for (Operation<T, R> operation : batch) {
+                operation.result().completeExceptionally(cause);
+            }
+        });
+    }
+
+    /**
+     * Sends the operations collected so far, then stops the timer.
+     */
+    public void close() {
+        flush();
+        timer.shutdownNow();
+    }
+}
@@ -0,0 +1,69 @@
+package io.archer.dba.cache;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * The coupon codes, 8 characters of an alphabet without the characters which are hard to recognize.
+ * <p>
+ * A code is either drawn at random, or derived from a sequence number by a keyed permutation: the number is split
+ * into two halves of 4 characters, which go through a Feistel network with modular addition. Every round is
+ * reversible, so distinct sequence numbers always give distinct codes, and the codes don't tell their order
+ * without the key. The permutation only hides the sequence, use random codes from a secure generator when the
+ * codes must not be guessed.
+ */
+final class CouponCode {
+    // avoid to use 0, 1, o, O, l, I that are hard to recognize.
+    private static final char[] CHARACTERS = "ABCDEFGHJKLMNPQRSTUVWXYZabcdefghijkmnpqrstuvwxyz23456789".toCharArray();
+
+    public static final int LENGTH = 8;
+
+    // the codes of 4 characters, a half of the permutation.
+    private static final long HALF = (long) CHARACTERS.length * CHARACTERS.length * CHARACTERS.length * CHARACTERS.length;
+
+    // the number of different codes, the sequence numbers must stay below.
+    public static final long SPACE = HALF * HALF;
+
+    private static final int ROUNDS = 4;
+
+    private CouponCode() {
+    }
+
+    public static String random(RandomGenerator random) {
+        char[] code = new char[LENGTH];
+        for (int i = 0; i < LENGTH; i++) {
+            code[i] = CHARACTERS[random.nextInt(CHARACTERS.length)];
+        }
+        return new String(code);
+    }
+
+    /**
+     * @return the key of the permutation of an activity, the activities don't share the order of their codes.
+     */
+    public static long key(long key, String activityId) {
+        return LotteryDraw.mix(key ^ LotteryDraw.hash(1, activityId));
+    }
+
+    public static String permute(long key, long sequence) {
+        if (sequence < 0 || sequence >= SPACE) {
+            throw new IllegalArgumentException("the sequence is out of the codes: " + sequence);
+        }
+        long left = sequence / HALF;
+        long right = sequence % HALF;
+        for (int round = 0; round < ROUNDS; round++) {
+            long next = (left + Math.floorMod(LotteryDraw.mix((key + round) ^ right), HALF)) % HALF;
+            left = right;
+            right = next;
+        }
+        char[] code = new char[LENGTH];
+        encode(left, code, 0);
+        encode(right, code, LENGTH / 2);
+        return new String(code);
+    }
+
+    private static void encode(long half, char[] code, int offset) {
+        for (int i = offset + LENGTH / 2 - 1; i >= offset; i--) {
+            code[i] = CHARACTERS[(int) (half % CHARACTERS.length)];
+            half /= CHARACTERS.length;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package io.archer.dba.cache;
+
+import io.quarkus.logging.Log;
+import io.smallrye.mutiny.Uni;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * The coupon codes a node has generated ahead for one activity.
+ * <p>
+ * The codes come in blocks, a code is taken by moving the cursor of the current block. When half of a block is
+ * taken, the next block is generated in the background, so the issuing rarely waits for codes, and concurrent
+ * callers share the same generation like they share the refill of a {@link StockLease}.
+ */
+class CouponCodePool {
+    private static final class Block {
+        private final String[] codes;
+        private final AtomicInteger cursor = new AtomicInteger();
+
+        private Block(String[] codes) {
+            this.codes = codes;
+        }
+    }
+
+    private static final Block EMPTY = new Block(new String[0]);
+
+    private final String activityId;
+    private final Supplier<Uni<String[]>> generate;
+    private final AtomicReference<Block> current = new AtomicReference<>(EMPTY);
+    private final ConcurrentLinkedQueue<Block> ready = new ConcurrentLinkedQueue<>();
+    private final AtomicReference<CompletableFuture<Void>> filling = new AtomicReference<>();
+
+    CouponCodePool(String activityId, Supplier<Uni<String[]>> generate) {
+        this.activityId = activityId;
+        this.generate = generate;
+    }
+
+    /**
+     * @return a code, or null when the generated codes are used up.
+     */
+    public String poll() {
+        while (true) {
+            Block block = current.get();
+            int index = block.cursor.getAndIncrement();
+            // the cursor of a used up block keeps going, and may wrap around after a long time.
+            if (index >= 0 && index < block.codes.length) {
+                if (index == block.codes.length / 2 && ready.isEmpty()) {
+                    fill().subscribe().with(v -> {
+                    }, cause ->
+                            Log.error(activityId + ": failed to generate coupon codes.", cause)
+                    );
+                }
+                return block.codes[index];
+            }
+            Block next = ready.poll();
+            if (next == null) {
+                return null;
+            }
+            if (!current.compareAndSet(block, next)) {
+                // another caller has moved on first, keep the block for later.
+                ready.offer(next);
+            }
+        }
+    }
+
+    public Uni<String> next() {
+        String code = poll();
+        if (code != null) {
+            return Uni.createFrom().item(code);
+        }
+        return fill().chain(this::next);
+    }
+
+    /**
+     * Generates another block, or joins the generation which is already in flight.
+     */
+    public Uni<Void> fill() {
+        CompletableFuture<Void> next = new CompletableFuture<>();
+        CompletableFuture<Void> in = filling.compareAndExchange(null, next);
+        if (in != null) {
+            return Uni.createFrom().completionStage(in);
+        }
+        generate.get().subscribe().with(codes -> {
+            if (codes.length == 0) {
+                filling.set(null);
+                next.completeExceptionally(new IllegalStateException("no coupon codes are generated."));
+                return;
+            }
+            ready.offer(new Block(codes));
+            filling.set(null);
+            next.complete(null);
+        }, cause -> {
+            filling.set(null);
+            next.completeExceptionally(cause);
+        });
+        return Uni.createFrom().completionStage(next);
+    }
+
+    /**
+     * Drops the codes not taken yet.
+     */
+    public void close() {
+        ready.clear();
+        current.set(EMPTY);
+    }
+}
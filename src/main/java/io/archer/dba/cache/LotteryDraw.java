@@ -0,0 +1,41 @@
+package io.archer.dba.cache;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A seeded shuffle of the reserved users.
+ * <p>
+ * Every user gets a score from a keyed hash of its id, and the users with the lowest scores win.
+ * The order only depends on the seed and the user ids, so drawing the same reservations again always
+ * picks the same winners, and the reservations can be scored page by page without loading them at once.
+ */
+final class LotteryDraw {
+    private LotteryDraw() {
+    }
+
+    public static long seed(long seed, String activityId) {
+        return mix(seed ^ hash(0, activityId));
+    }
+
+    public static double score(long seed, String userId) {
+        // 53 random bits in [0, 1), the precision of a sorted set score.
+        return (mix(hash(seed, userId)) >>> 11) * 0x1.0p-53;
+    }
+
+    // FNV-1a
+    static long hash(long seed, String value) {
+        long h = seed ^ 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    // the finalizer of SplitMix64
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
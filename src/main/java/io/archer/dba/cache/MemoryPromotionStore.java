@@ -0,0 +1,314 @@
+package io.archer.dba.cache;
+
+import io.archer.PromotionEvents;
+import io.archer.PromotionMetrics;
+import io.archer.PromotionOptions;
+import io.archer.exception.PromotionException;
+import io.archer.model.Activity;
+import io.archer.model.Promotion;
+import io.quarkus.logging.Log;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Typed;
+import jakarta.inject.Inject;
+
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The {@link PromotionStore} in the memory of this node, for a single node.
+ * <p>
+ * The reservations of an activity are spread over {@code promotion.memory.segments} {@link ReservationTable}s by
+ * the user id, each behind its own lock, and the amount is a {@link StripedStock} with a stripe per segment, so the
+ * requests of different users rarely wait for each other. A request is answered on the calling thread, without a
+ * round trip. The issuing modes which differ in their round trips all issue alike, the LOTTERY mode draws the
+ * winners like in Redis. Nothing is shared with the other nodes, nor kept over a restart beyond the database.
+ */
+@ApplicationScoped
+@Typed(MemoryPromotionStore.class)
+public class MemoryPromotionStore implements PromotionStore {
+    // the issuing of a prepared activity, the winners are null unless it is a lottery.
+    private record Issuing(StripedStock stock, Set<String> winners) {
+    }
+
+    @Inject
+    private PromotionOptions options;
+
+    @Inject
+    private PromotionMetrics metrics;
+
+    @Inject
+    private PromotionEvents events;
+
+    // the segments of the reservations, by activity
+    private final ConcurrentHashMap<String, ReservationTable[]> reservations = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<String, Issuing> issuings = new ConcurrentHashMap<>();
+
+    // the next sequence number of the SEQUENCE codes, by activity
+    private final ConcurrentHashMap<String, AtomicLong> sequences = new ConcurrentHashMap<>();
+
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    // ERROR Messages
+    private final String ERROR_DUPLICATED_ISSUE = "the promotion has been issued.";
+    private final String ERROR_GETTING_PROMOTION_AMOUNT = "failed to get the promotion amount.";
+    private final String ERROR_NO_RESERVATION = "no reservation";
+    private final String ERROR_NOT_DRAWN = "the reservation is not drawn in the lottery.";
+    private final String ERROR_RAN_OUT = "the promotion amount is ran out.";
+
+    private ReservationTable[] tablesOf(String activityId) {
+        return reservations.computeIfAbsent(activityId, id -> {
+            PromotionOptions.Memory memory = options.memory();
+            ReservationTable[] tables = new ReservationTable[memory.segments()];
+            for (int i = 0; i < tables.length; i++) {
+                tables[i] = new ReservationTable(memory.initialCapacity(), memory.offHeap());
+            }
+            return tables;
+        });
+    }
+
+    private int segmentOf(String userId) {
+        return Math.floorMod(userId.hashCode(), options.memory().segments());
+    }
+
+    @Override
+    public Uni<Promotion> isReserved(String activityId, String userId) {
+        return Uni.createFrom().item(() -> {
+            ReservationTable table = tablesOf(activityId)[segmentOf(userId)];
+            Promotion promotion;
+            synchronized (table) {
+                promotion = table.get(userId);
+            }
+            return promotion == null ? null : promotion.setActivity(activityId);
+        });
+    }
+
+    @Override
+    public Uni<Promotion> reserve(String activityId, String userId) {
+        return reserveIfAbsent(activityId, userId).map(Outcome::promotion);
+    }
+
+    @Override
+    public Uni<Outcome> reserveIfAbsent(String activityId, String userId) {
+        return Uni.createFrom().item(() ->
+                reserveNow(activityId, userId, Instant.now().truncatedTo(ChronoUnit.MILLIS))
+        );
+    }
+
+    @Override
+    public Uni<List<Outcome>> reserveAll(String activityId, List<String> userIds) {
+        return Uni.createFrom().item(() -> {
+            Instant reservedTime = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+            List<Outcome> outcomes = new ArrayList<>(userIds.size());
+            for (String userId : userIds) {
+                outcomes.add(reserveNow(activityId, userId, reservedTime));
+            }
+            return outcomes;
+        });
+    }
+
+    private Outcome reserveNow(String activityId, String userId, Instant reservedTime) {
+        // the binary form keeps millis only, keep the same precision in the returned promotion.
+        Promotion reservation = new Promotion()
+                .setId(UUID.randomUUID())
+                .setActivity(activityId)
+                .setUser(userId)
+                .setReservedTime(reservedTime);
+        ReservationTable table = tablesOf(activityId)[segmentOf(userId)];
+        Promotion existing;
+        synchronized (table) {
+            existing = table.putIfAbsent(reservation);
+        }
+        if (existing != null) {
+            return new Outcome(userId, existing.setActivity(activityId), false, null);
+        }
+        metrics.reserved(activityId);
+        events.reserved(reservation);
+        return new Outcome(userId, reservation, true, null);
+    }
+
+    /**
+     * Counts the amount, and draws the winners of a lottery, on a worker thread rather than the thread of the timer
+     * which calls it, so a large activity doesn't delay the timers of the others.
+     */
+    @Override
+    public Uni<Void> prepare(Activity activity, String whom) {
+        return Uni.createFrom().item(() ->
+                issuings.computeIfAbsent(activity.getId(), id -> {
+                    ReservationTable[] tables = tablesOf(id);
+                    List<String> users = new ArrayList<>();
+                    for (ReservationTable table : tables) {
+                        synchronized (table) {
+                            table.forEachUser(users::add);
+                        }
+                    }
+                    long amount = activity.amountOf(users.size());
+                    Log.info(id + ": total amount of promotion is " + amount);
+                    if (options.issuingMode() != PromotionOptions.IssuingMode.LOTTERY) {
+                        return new Issuing(new StripedStock(amount, tables.length), null);
+                    }
+                    Set<String> winners = draw(LotteryDraw.seed(options.lottery().seed(), id), users, amount);
+                    return new Issuing(new StripedStock(winners.size(), tables.length), winners);
+                })
+        ).runSubscriptionOn(
+                Infrastructure.getDefaultWorkerPool()
+        ).replaceWithVoid();
+    }
+
+    private record Ticket(String userId, double score) {
+    }
+
+    // the lowest scores win, the ties by the user id like a sorted set in Redis.
+    private static final Comparator<Ticket> DRAW_ORDER = Comparator.comparingDouble(Ticket::score)
+            .thenComparing(Ticket::userId);
+
+    // the `amount` lowest scores, kept in a heap of the winners so far rather than sorting every user.
+    private static Set<String> draw(long seed, List<String> users, long amount) {
+        int winners = (int) Math.min(amount, users.size());
+        if (winners <= 0) {
+            return Set.of();
+        }
+        PriorityQueue<Ticket> drawn = new PriorityQueue<>(winners, DRAW_ORDER.reversed());
+        for (String user : users) {
+            Ticket ticket = new Ticket(user, LotteryDraw.score(seed, user));
+            if (drawn.size() < winners) {
+                drawn.add(ticket);
+            } else if (DRAW_ORDER.compare(ticket, drawn.peek()) < 0) {
+                drawn.poll();
+                drawn.add(ticket);
+            }
+        }
+        Set<String> drawnUsers = new HashSet<>(drawn.size() * 2);
+        for (Ticket ticket : drawn) {
+            drawnUsers.add(ticket.userId());
+        }
+        return drawnUsers;
+    }
+
+    /**
+     * Nothing is leased by this node, the reservations and the amount stay for the reclaims.
+     */
+    @Override
+    public Uni<Void> close(String activityId) {
+        return Uni.createFrom().voidItem();
+    }
+
+    @Override
+    public Uni<Promotion> issue(String activityId, String userId) {
+        return Uni.createFrom().deferred(() -> {
+            Outcome outcome = issueNow(activityId, userId);
+            if (outcome.error() != null) {
+                return Uni.createFrom().failure(new PromotionException(outcome.error()));
+            }
+            return Uni.createFrom().item(outcome.promotion());
+        });
+    }
+
+    @Override
+    public Uni<List<Outcome>> issueAll(String activityId, List<String> userIds) {
+        return Uni.createFrom().item(() -> {
+            List<Outcome> outcomes = new ArrayList<>(userIds.size());
+            for (String userId : userIds) {
+                outcomes.add(issueNow(activityId, userId));
+            }
+            return outcomes;
+        });
+    }
+
+    // checks the reservation, takes one from the amount and writes the coupon, in the order of issue.lua.
+    private Outcome issueNow(String activityId, String userId) {
+        Issuing issuing = issuings.get(activityId);
+        int segment = segmentOf(userId);
+        ReservationTable table = tablesOf(activityId)[segment];
+        String error;
+        String reason;
+        synchronized (table) {
+            int index = table.indexOf(userId);
+            if (index < 0) {
+                error = ERROR_NO_RESERVATION;
+                reason = "no_reservation";
+            } else if (issuing == null) {
+                error = ERROR_GETTING_PROMOTION_AMOUNT;
+                reason = "no_amount";
+            } else if (issuing.winners() != null && !issuing.winners().contains(userId)) {
+                error = ERROR_NOT_DRAWN;
+                reason = "not_drawn";
+            } else if (table.isIssued(index)) {
+                error = ERROR_DUPLICATED_ISSUE;
+                reason = "duplicated";
+            } else if (!issuing.stock().tryTake(segment)) {
+                error = ERROR_RAN_OUT;
+                reason = "ran_out";
+            } else {
+                Promotion promotion = table.read(index)
+                        .setActivity(activityId)
+                        .setCode(nextCode(activityId))
+                        .setIssuedTime(Instant.now().truncatedTo(ChronoUnit.MILLIS));
+                table.write(index, promotion);
+                metrics.issued(activityId);
+                events.issued(promotion);
+                return new Outcome(userId, promotion, true, null);
+            }
+        }
+        metrics.rejected(activityId, reason);
+        events.rejected(activityId, userId, error);
+        return new Outcome(userId, null, false, error);
+    }
+
+    private String nextCode(String activityId) {
+        PromotionOptions.Code code = options.code();
+        return switch (code.generator()) {
+            case RANDOM -> CouponCode.random(ThreadLocalRandom.current());
+            case SECURE -> CouponCode.random(secureRandom);
+            case SEQUENCE -> CouponCode.permute(
+                    CouponCode.key(code.key(), activityId),
+                    sequences.computeIfAbsent(activityId, id -> new AtomicLong()).getAndIncrement()
+            );
+        };
+    }
+
+    @Override
+    public boolean isSoldOut(String activityId) {
+        Issuing issuing = issuings.get(activityId);
+        return issuing != null && issuing.stock().remaining() == 0;
+    }
+
+    @Override
+    public Uni<Long> remaining(String activityId) {
+        return Uni.createFrom().item(() -> {
+            Issuing issuing = issuings.get(activityId);
+            return issuing == null ? null : issuing.stock().remaining();
+        });
+    }
+
+    @Override
+    public Uni<Void> reclaim(String activityId, String userId) {
+        return Uni.createFrom().item(() -> {
+            int segment = segmentOf(userId);
+            ReservationTable table = tablesOf(activityId)[segment];
+            Promotion removed;
+            synchronized (table) {
+                removed = table.remove(userId);
+            }
+            Issuing issuing = issuings.get(activityId);
+            // a lottery is only issued to its winners, nobody else could take the coupon given back.
+            if (removed != null && removed.getIssuedTime() != null && issuing != null && issuing.winners() == null) {
+                issuing.stock().giveBack(segment);
+            }
+            return null;
+        }).replaceWithVoid();
+    }
+}
@@ -1,56 +1,375 @@
 package io.archer.dba.cache;
 
+import io.archer.PromotionEvents;
+import io.archer.PromotionMetrics;
+import io.archer.PromotionOptions;
 import io.archer.exception.PromotionException;
+import io.archer.model.Activity;
 import io.archer.model.Promotion;
+import io.archer.model.PromotionCodec;
 import io.quarkus.logging.Log;
 import io.quarkus.redis.client.RedisClientName;
 import io.quarkus.redis.datasource.ReactiveRedisDataSource;
+import io.quarkus.redis.datasource.ScanArgs;
 import io.quarkus.redis.datasource.value.SetArgs;
 import io.smallrye.mutiny.Uni;
-import io.vertx.core.json.Json;
+import io.smallrye.mutiny.Multi;
+import io.vertx.mutiny.redis.client.Request;
+import io.vertx.mutiny.redis.client.Response;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Typed;
 import jakarta.inject.Inject;
+import java.security.SecureRandom;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntFunction;
+import java.util.random.RandomGenerator;
 
+/**
+ * The {@link PromotionStore} in Redis, shared by the nodes.
+ */
 @ApplicationScoped
-public class PromotionCache {
+@Typed(PromotionCache.class)
+public class PromotionCache implements PromotionStore {
     @Inject
     @RedisClientName("promotion")
     private ReactiveRedisDataSource redisDataSource;
 
+    @Inject
+    private PromotionOptions options;
+
+    @Inject
+    private StockNotifier notifier;
+
+    @Inject
+    private PromotionMetrics metrics;
+
+    @Inject
+    private PromotionEvents events;
+
     // prefix key for cache
     private final String key = "promotion";
 
+    // the reservation hashes of an activity, the promotion amount is kept in one key apart from them.
+    private ReservationShards shards;
+
+    // the answers of issuing which can't change any more, kept on this node.
+    private ReservationNearCache nearCache;
+
+    // the script calls of concurrent requests sent together, null unless promotion.coalescing is enabled.
+    private Coalescer<Call, Response> coalescer;
+
+    // the time a node may take to prepare an activity, like drawing the lottery.
+    private final long PREPARE_TIMEOUT = 60000;
+
+    // how long the amount is kept after the issuing closes, for the reclaims, then a new run of the activity counts again.
+    private final Duration AMOUNT_RETENTION = Duration.ofDays(1);
+
+    // server-side scripts for the reservation, and the SCRIPT, LEASE and LOTTERY issuing modes
+    private final RedisScript reserveScript = RedisScript.load("reserve");
+    private final RedisScript issueScript = RedisScript.load("issue");
+    private final RedisScript issueLotteryScript = RedisScript.load("issue_lottery");
+    private final RedisScript leaseScript = RedisScript.load("lease");
+    private final RedisScript reclaimScript = RedisScript.load("reclaim");
+
+    // blocks of the promotion amount leased by this node, by activity
+    private final ConcurrentHashMap<String, StockLease> leases = new ConcurrentHashMap<>();
+
+    // the coupon codes generated ahead by this node, by activity
+    private final ConcurrentHashMap<String, CouponCodePool> codePools = new ConcurrentHashMap<>();
+
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    // the filters of the reserved users, by activity, and the time to look for a filter not published yet.
+    private final ConcurrentHashMap<String, ReservationFilter> filters = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Long> filterLoads = new ConcurrentHashMap<>();
+
+    // the wait before looking for a filter again, while another node is still building it.
+    private final long FILTER_RETRY = 1000;
+
+    // the number of reservations scanned at a time to build a filter.
+    private final int FILTER_PAGE_SIZE = 1000;
+
     // ERROR Messages
     private final String ERROR_DUPLICATED_ISSUE = "the promotion has been issued.";
     private final String ERROR_GETTING_PROMOTION_AMOUNT = "failed to get the promotion amount.";
     private final String ERROR_ISSUE = "failed to issue a promotion.";
     private final String ERROR_NO_RESERVATION = "no reservation";
+    private final String ERROR_NOT_DRAWN = "the reservation is not drawn in the lottery.";
     private final String ERROR_RAN_OUT = "the promotion amount is ran out.";
     private final String ERROR_RELEASE_LOCK = "failed to release the lock.";
-    private final String ERROR_RESERVE = "failed to reserve a promotion.";
     private final String ERROR_REVERSE_AMOUNT = "failed to reverse promotion amount.";
 
-    private Uni<Long> calculateAmount(String activityId) {
+    @PostConstruct
+    void init() {
+        shards = new ReservationShards(key, options.shards());
+        nearCache = new ReservationNearCache(options.nearCache());
+        PromotionOptions.Coalescing coalescing = options.coalescing();
+        if (coalescing.enabled()) {
+            coalescer = new Coalescer<>(
+                    coalescing.maxSize(),
+                    coalescing.maxDelay().toNanos(),
+                    this::send,
+                    metrics::coalesced
+            );
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (coalescer != null) {
+            coalescer.close();
+        }
+    }
+
+    private String hashOf(String activityId, String userId) {
+        return shards.hash(activityId, shards.shardOf(userId));
+    }
+
+    private Uni<Long> countReservations(String activityId) {
+        List<Uni<Long>> lengths = new ArrayList<>();
+        for (int shard = 0; shard < shards.count(); shard++) {
+            lengths.add(
+                    redisDataSource.hash(
+                            String.class,
+                            String.class,
+                            String.class
+                    ).hlen(
+                            shards.hash(activityId, shard)
+                    )
+            );
+        }
+        return Uni.join().all(
+                lengths
+        ).andFailFast().map(counts ->
+                counts.stream().mapToLong(Long::longValue).sum()
+        );
+    }
+
+    private Uni<Long> calculateAmount(Activity activity) {
+        String activityId = activity.getId();
         Log.info(activityId + ": start to count the total amount for promotion");
-        return redisDataSource.hash(
-                String.class,
-                String.class,
-                String.class
-        ).hlen(
-                String.join(":", key, activityId)
+        return countReservations(
+                activityId
         ).chain(length ->
-                Uni.createFrom().item(Math.round(length * 0.2))
-        ).chain(amount ->
-                setPromotionAmount(activityId, amount).replaceWith(amount)
-        );
+                Uni.createFrom().item(activity.amountOf(length))
+        ).chain(amount -> {
+            Instant expiry = expiryOf(activity);
+            if (options.issuingMode() == PromotionOptions.IssuingMode.LOTTERY) {
+                // the amount is set after the draw, it tells the lottery is ready for issuing.
+                return draw(activityId, amount, expiry).chain(() ->
+                        initPromotionAmount(activityId, amount, expiry)
+                ).replaceWith(amount);
+            }
+            return initPromotionAmount(activityId, amount, expiry).replaceWith(amount);
+        });
     }
 
-    private Uni<Long> decentAmount(String activityId) {
+    private Uni<Void> draw(String activityId, long amount, Instant expiry) {
+        String drawKey = String.join(":", key, "draw", activityId);
+        String[] winnerKeys = new String[shards.count()];
+        for (int shard = 0; shard < shards.count(); shard++) {
+            winnerKeys[shard] = shards.winner(activityId, shard);
+        }
+        // the winners drawn in each shard, they are issued from the amount of their own shard.
+        long[] winners = new long[shards.count()];
+        long seed = LotteryDraw.seed(options.lottery().seed(), activityId);
+        int pageSize = options.lottery().pageSize();
+        return redisDataSource.key().exists(
+                String.join(":", key, "amount", activityId)
+        ).chain(drawn -> {
+            if (drawn) {
+                Log.info(activityId + ": the lottery has been drawn");
+                return Uni.createFrom().voidItem();
+            }
+            Log.info(activityId + ": start to draw " + amount + " winners of the lottery");
+            List<String> keys = new ArrayList<>(List.of(winnerKeys));
+            keys.add(drawKey);
+            return redisDataSource.key().del(
+                    keys.toArray(new String[0])
+            ).chain(() ->
+                    // score the reservations of all shards page by page, the sorted set keeps the shuffled order.
+                    Multi.createFrom().range(
+                            0,
+                            shards.count()
+                    ).onItem().transformToMultiAndConcatenate(shard ->
+                            redisDataSource.hash(
+                                    String.class,
+                                    String.class,
+                                    byte[].class
+                            ).hscan(
+                                    shards.hash(activityId, shard),
+                                    new ScanArgs().count(pageSize)
+                            ).toMulti()
+                    ).group().intoLists().of(pageSize).onItem().transformToUniAndConcatenate(page -> {
+                        Map<String, Double> scores = new HashMap<>();
+                        for (Map.Entry<String, byte[]> entry : page) {
+                            scores.put(entry.getKey(), LotteryDraw.score(seed, entry.getKey()));
+                        }
+                        return redisDataSource.sortedSet(String.class).zadd(drawKey, scores);
+                    }).collect().last()
+            ).chain(() ->
+                    pickWinners(drawKey, activityId, 0, amount, pageSize, winners)
+            ).chain(() ->
+                    setDrawnAmounts(activityId, winners, expiry)
+            ).chain(() ->
+                    redisDataSource.key().del(drawKey).replaceWithVoid()
+            );
+        });
+    }
+
+    private Uni<Void> pickWinners(String drawKey, String activityId, long from, long amount, int pageSize, long[] winners) {
+        if (from >= amount) {
+            return Uni.createFrom().voidItem();
+        }
+        long to = Math.min(from + pageSize, amount) - 1;
+        return redisDataSource.sortedSet(
+                String.class
+        ).zrange(
+                drawKey,
+                from,
+                to
+        ).chain(users -> {
+            if (users.isEmpty()) {
+                return Uni.createFrom().voidItem();
+            }
+            Map<Integer, List<String>> byShard = new HashMap<>();
+            for (String user : users) {
+                byShard.computeIfAbsent(shards.shardOf(user), shard -> new ArrayList<>()).add(user);
+            }
+            List<Uni<Integer>> adds = new ArrayList<>();
+            byShard.forEach((shard, drawn) -> {
+                winners[shard] += drawn.size();
+                adds.add(
+                        redisDataSource.set(
+                                String.class
+                        ).sadd(
+                                shards.winner(activityId, shard),
+                                drawn.toArray(new String[0])
+                        )
+                );
+            });
+            return Uni.join().all(
+                    adds
+            ).andFailFast().chain(() ->
+                    pickWinners(drawKey, activityId, to + 1, amount, pageSize, winners)
+            );
+        });
+    }
+
+    /**
+     * @return when the amount and the filter of an activity expire, or null for an activity without a schedule,
+     * which keeps them until it is removed.
+     */
+    private Instant expiryOf(Activity activity) {
+        return activity.getIssuingTime() == null ? null : activity.getIssuingEnd().plus(AMOUNT_RETENTION);
+    }
+
+    private Uni<Void> buildFilter(String activityId, Instant expiry) {
+        PromotionOptions.Filter filterOptions = options.filter();
+        return countReservations(
+                activityId
+        ).chain(count -> {
+            ReservationFilter filter = ReservationFilter.create(
+                    count,
+                    filterOptions.falsePositiveRate(),
+                    filterOptions.maximumBytes()
+            );
+            return Multi.createFrom().range(
+                    0,
+                    shards.count()
+            ).onItem().transformToMultiAndConcatenate(shard ->
+                    redisDataSource.hash(
+                            String.class,
+                            String.class,
+                            byte[].class
+                    ).hscan(
+                            shards.hash(activityId, shard),
+                            new ScanArgs().count(FILTER_PAGE_SIZE)
+                    ).toMulti()
+            ).onItem().invoke(entry ->
+                    filter.add(entry.getKey())
+            ).collect().last().chain(() -> {
+                Log.info(activityId + ": the filter of " + count + " reservations takes " + filter.sizeInBytes() + " bytes");
+                // publish the filter for the other nodes.
+                return redisDataSource.value(
+                        byte[].class
+                ).set(
+                        String.join(":", key, "filter", activityId),
+                        filter.toBytes(),
+                        expireAt(new SetArgs(), expiry)
+                );
+            }).invoke(() -> {
+                filters.put(activityId, filter);
+                filterLoads.remove(activityId);
+            });
+        });
+    }
+
+    private Uni<Void> loadFilter(String activityId) {
         return redisDataSource.value(
+                byte[].class
+        ).get(
+                String.join(":", key, "filter", activityId)
+        ).invoke(bytes -> {
+            // the filter is not published yet, or the issuing has closed.
+            if (bytes != null && filterLoads.remove(activityId) != null) {
+                filters.put(activityId, ReservationFilter.fromBytes(bytes));
+            }
+        }).replaceWithVoid();
+    }
+
+    /**
+     * @return false if the user has surely not reserved, by the filter of this node.
+     */
+    private boolean mightHaveReserved(String activityId, String userId) {
+        ReservationFilter filter = filters.get(activityId);
+        if (filter != null) {
+            return filter.mightContain(userId);
+        }
+        Long next = filterLoads.get(activityId);
+        long now = System.currentTimeMillis();
+        if (next != null && now >= next && filterLoads.replace(activityId, next, now + FILTER_RETRY)) {
+            loadFilter(activityId).subscribe().with(v -> {
+            }, cause ->
+                    Log.error(activityId + ": failed to load the reservation filter.", cause)
+            );
+        }
+        return true;
+    }
+
+    private Uni<Void> setDrawnAmounts(String activityId, long[] winners, Instant expiry) {
+        List<Uni<Void>> sets = new ArrayList<>();
+        for (int shard = 0; shard < winners.length; shard++) {
+            sets.add(
+                    redisDataSource.value(
+                            String.class
+                    ).set(
+                            shards.amount(activityId, shard),
+                            String.valueOf(winners[shard]),
+                            expireAt(new SetArgs(), expiry)
+                    )
+            );
+        }
+        return Uni.join().all(sets).andFailFast().replaceWithVoid();
+    }
+
+    private Uni<Long> decentAmount(String activityId) {
+        return metrics.timed("decrement", redisDataSource.value(
                 String.class
         ).get(
                 String.join(":", key, "amount", activityId)
@@ -60,24 +379,22 @@ public class PromotionCache {
                 if (amount > 0) {
                     return Uni.createFrom().item(amount - 1);
                 } else {
-                    Log.error(activityId + ": " + ERROR_RAN_OUT);
                     return Uni.createFrom().failure(
                             new PromotionException(ERROR_RAN_OUT)
                     );
                 }
             } else {
-                Log.error(activityId + ": " + ERROR_GETTING_PROMOTION_AMOUNT);
                 return Uni.createFrom().failure(
                         new PromotionException(ERROR_GETTING_PROMOTION_AMOUNT)
                 );
             }
         }).chain(amount ->
                 setPromotionAmount(activityId, amount).replaceWith(amount)
-        );
+        ));
     }
 
     private Uni<Long> increaseAmount(String activityId) {
-        return redisDataSource.value(
+        return metrics.timed("increment", redisDataSource.value(
                 String.class
         ).get(
                 String.join(":", key, "amount", activityId)
@@ -96,24 +413,35 @@ public class PromotionCache {
             }
         }).chain(amount ->
                 setPromotionAmount(activityId, amount).replaceWith(amount)
-        );
+        ));
     }
 
     private Uni<Void> lock(String activityId, String whom) {
         SetArgs args = new SetArgs().nx().px(5000);
-        return redisDataSource.value(
+        return metrics.timed("lock", redisDataSource.value(
                 String.class
         ).set(
                 String.join(":", "lock", activityId),
                 whom,
                 new SetArgs().nx().px(5000)
-        );
+        ));
+    }
+
+    private Uni<Boolean> tryLock(String activityId, String whom, long timeout) {
+        return metrics.timed("lock", redisDataSource.execute(
+                "SET",
+                String.join(":", "lock", activityId),
+                whom,
+                "NX",
+                "PX",
+                String.valueOf(timeout)
+        )).map(response -> response != null);
     }
 
     private Uni<Void> release(String activityId) {
-        return redisDataSource.key().del(
+        return metrics.timed("release", redisDataSource.key().del(
                 String.join(":", "lock", activityId)
-        ).chain(count -> {
+        )).chain(count -> {
             if (count == 0 || count == 1) {
                 return Uni.createFrom().nullItem();
             } else {
@@ -125,35 +453,52 @@ public class PromotionCache {
         });
     }
 
+    private Uni<Void> initPromotionAmount(String activityId, long amount, Instant expiry) {
+        // every node counts the amount when the reservation closes, but only the first one sets it,
+        // a later count must not refill the amount which has been issued or leased. It expires after the activity,
+        // so running the activity id again counts a new amount rather than the stale one.
+        return redisDataSource.value(
+                String.class
+        ).set(
+                String.join(":", key, "amount", activityId),
+                String.valueOf(amount),
+                expireAt(new SetArgs().nx(), expiry)
+        );
+    }
+
+    private static SetArgs expireAt(SetArgs args, Instant expiry) {
+        return expiry == null ? args : args.pxAt(expiry);
+    }
+
     private Uni<Void> setPromotionAmount(String activityId, long amount) {
         return redisDataSource.value(
                 String.class
         ).set(
                 String.join(":", key, "amount", activityId),
-                String.valueOf(amount)
+                String.valueOf(amount),
+                new SetArgs().keepttl()
         );
     }
 
+    @Override
     public Uni<Promotion> isReserved(String activityId, String userId) {
-        return redisDataSource.hash(
+        return metrics.timed("isReserved", redisDataSource.hash(
                 String.class,
                 String.class,
-                String.class
+                byte[].class
         ).hget(
-                String.join(":", key, activityId),
+                hashOf(activityId, userId),
                 userId
-        ).chain(value -> {
-            if (value == null || value.isEmpty()) {
+        )).chain(value -> {
+            if (value == null || value.length == 0) {
                 return Uni.createFrom().nullItem();
             } else {
                 try {
-                    //noinspection unchecked
                     return Uni.createFrom().item(
-                            Promotion.valueOf(
-                                    Json.decodeValue(
-                                            value,
-                                            HashMap.class
-                                    )
+                            PromotionCodec.decode(
+                                    value,
+                                    activityId,
+                                    userId
                             )
                     );
                 } catch (Exception e) {
@@ -163,60 +508,679 @@ public class PromotionCache {
         });
     }
 
+    @Override
     public Uni<Promotion> reserve(String activityId, String userId) {
-        return isReserved(
+        return reserveIfAbsent(activityId, userId).map(Outcome::promotion);
+    }
+
+    /**
+     * Reserves for a user in one round trip, or answers the reservation the user already has, so concurrent
+     * requests of a user get the same reservation.
+     *
+     * @return the reservation, created if this request has written it.
+     */
+    @Override
+    public Uni<Outcome> reserveIfAbsent(String activityId, String userId) {
+        Promotion reservation = reserving(activityId, userId, Instant.now().truncatedTo(ChronoUnit.MILLIS));
+        return metrics.timed(
+                "reserve",
+                call(shards.shardOf(userId), reserveScript, reserveRequest(reservation))
+        ).map(response ->
+                reserved(reservation, response)
+        );
+    }
+
+    // a new reservation, with the local effects of reserving.
+    private Promotion reserving(String activityId, String userId, Instant reservedTime) {
+        nearCache.invalidate(activityId, userId);
+        ReservationFilter filter = filters.get(activityId);
+        if (filter != null) {
+            filter.add(userId);
+        }
+        // the binary form keeps millis only, keep the same precision in the returned promotion.
+        return new Promotion()
+                .setId(UUID.randomUUID())
+                .setActivity(activityId)
+                .setUser(userId)
+                .setReservedTime(reservedTime);
+    }
+
+    private Request reserveRequest(Promotion reservation) {
+        return reserveScript.request(
+                List.of(hashOf(reservation.getActivity(), reservation.getUser())),
+                reservation.getUser()
+        ).arg(
+                PromotionCodec.encode(reservation)
+        );
+    }
+
+    private Outcome reserved(Promotion reservation, Response response) {
+        if (response.get(0).toInteger() > 0) {
+            metrics.reserved(reservation.getActivity());
+            events.reserved(reservation);
+            return new Outcome(reservation.getUser(), reservation, true, null);
+        }
+        Promotion existing = PromotionCodec.decode(
+                response.get(1).toBytes(),
+                reservation.getActivity(),
+                reservation.getUser()
+        );
+        return new Outcome(reservation.getUser(), existing, false, null);
+    }
+
+    @Override
+    public Uni<Void> prepare(Activity activity, String whom) {
+        String activityId = activity.getId();
+        nearCache.open(activity);
+        notifier.reset(activityId);
+        return tryLock(
                 activityId,
-                userId
-        ).chain(promotion -> {
-            if (promotion == null) {
-                HashMap<String, String> values = new HashMap<>();
-                values.put("id", UUID.randomUUID().toString());
-                values.put("activity", activityId);
-                values.put("user", userId);
-                values.put("reservedTime", DateTimeFormatter.ISO_INSTANT.format(Instant.now()));
-                return redisDataSource.hash(
-                        String.class,
-                        String.class,
-                        String.class
-                ).hset(
-                        String.join(":", key, activityId),
-                        userId,
-                        Json.encode(values)
-                ).chain(success -> {
-                    if (success) {
-                        return Uni.createFrom().item(Promotion.valueOf(values));
-                    } else {
-                        Log.error(
-                                String.join(
-                                        " - ",
-                                        activityId,
-                                        userId
-                                ) + ": " + ERROR_RESERVE
+                "promotion-timer-" + whom,
+                PREPARE_TIMEOUT
+        ).chain(locked -> {
+            if (!locked) {
+                Log.info(activityId + ": the promotion is being prepared by another node");
+                if (options.filter().enabled()) {
+                    // load the filter published by the preparing node on the first issue.
+                    filterLoads.put(activityId, System.currentTimeMillis());
+                }
+                return Uni.createFrom().voidItem();
+            }
+            // drop the filter of an earlier run of the activity, so no node loads it while this one is built.
+            return redisDataSource.key().del(
+                    String.join(":", key, "filter", activityId)
+            ).chain(() ->
+                    calculateAmount(activity)
+            ).chain(amount -> {
+                Log.info(activityId + ": total amount of promotion is " + amount);
+                return options.filter().enabled()
+                        ? buildFilter(activityId, expiryOf(activity))
+                        : Uni.createFrom().voidItem();
+            }).chain(() ->
+                    release(activityId)
+            );
+        }).chain(() -> {
+            // generate the first codes before the issuing starts.
+            return options.code().poolSize() > 0 ? codePool(activityId).fill() : Uni.createFrom().voidItem();
+        }).chain(() -> {
+            if (options.issuingMode() == PromotionOptions.IssuingMode.LEASE) {
+                // lease the first block before the issuing starts.
+                return refill(activityId, leases.computeIfAbsent(activityId, id -> new StockLease()))
+                        .replaceWithVoid();
+            }
+            return Uni.createFrom().voidItem();
+        });
+    }
+
+    /**
+     * Gives the coupons still leased by this node back to the promotion amount, when the issuing closes.
+     */
+    @Override
+    public Uni<Void> close(String activityId) {
+        nearCache.close(activityId);
+        notifier.reset(activityId);
+        filters.remove(activityId);
+        filterLoads.remove(activityId);
+        CouponCodePool pool = codePools.remove(activityId);
+        if (pool != null) {
+            pool.close();
+        }
+        StockLease lease = leases.get(activityId);
+        if (lease == null) {
+            return Uni.createFrom().voidItem();
+        }
+        long unused = lease.close();
+        Log.info(activityId + ": " + unused + " leased promotions are given back");
+        return giveBack(activityId, unused);
+    }
+
+    private Uni<Void> giveBack(String activityId, long count) {
+        if (count <= 0) {
+            return Uni.createFrom().voidItem();
+        }
+        return metrics.timed("giveBack", redisDataSource.value(
+                String.class
+        ).incrby(
+                String.join(":", key, "amount", activityId),
+                count
+        )).replaceWithVoid();
+    }
+
+    // gives one coupon back, the nodes are told it is restocked only when the amount had run out,
+    // a larger amount was restocked by the give-back which moved it from zero.
+    private Uni<Void> restock(String activityId) {
+        return metrics.timed("giveBack", redisDataSource.value(
+                String.class
+        ).incr(
+                String.join(":", key, "amount", activityId)
+        )).invoke(amount -> {
+            if (amount == 1) {
+                notifier.restocked(activityId);
+            }
+        }).replaceWithVoid();
+    }
+
+    private Uni<Long> refill(String activityId, StockLease lease) {
+        return lease.refill(() ->
+                metrics.timed("lease", leaseScript.execute(
+                        redisDataSource,
+                        List.of(String.join(":", key, "amount", activityId)),
+                        String.valueOf(options.lease().blockSize())
+                )).map(response -> response.toLong()),
+                count -> giveBack(activityId, count)
+        );
+    }
+
+    private Uni<Void> acquire(String activityId, StockLease lease) {
+        if (lease.tryAcquire()) {
+            return Uni.createFrom().voidItem();
+        }
+        return refill(activityId, lease).chain(granted -> {
+            if (granted > 0) {
+                return acquire(activityId, lease);
+            } else if (granted == 0) {
+                return Uni.createFrom().failure(new PromotionException(ERROR_RAN_OUT));
+            } else {
+                return Uni.createFrom().failure(new PromotionException(ERROR_GETTING_PROMOTION_AMOUNT));
+            }
+        });
+    }
+
+    private Uni<String[]> generateCodes(String activityId, int count) {
+        PromotionOptions.Code code = options.code();
+        if (code.generator() == PromotionOptions.Code.Generator.SEQUENCE) {
+            // take a range of the sequence of the activity, no other node gets the codes of the range.
+            return metrics.timed("codes", redisDataSource.value(
+                    String.class
+            ).incrby(
+                    String.join(":", key, "code", activityId),
+                    count
+            )).map(end -> {
+                long permutation = CouponCode.key(code.key(), activityId);
+                String[] codes = new String[count];
+                for (int i = 0; i < count; i++) {
+                    codes[i] = CouponCode.permute(permutation, end - count + i);
+                }
+                return codes;
+            });
+        }
+        return Uni.createFrom().item(() -> {
+            RandomGenerator random = code.generator() == PromotionOptions.Code.Generator.SECURE
+                    ? secureRandom
+                    : ThreadLocalRandom.current();
+            String[] codes = new String[count];
+            for (int i = 0; i < count; i++) {
+                codes[i] = CouponCode.random(random);
+            }
+            return codes;
+        });
+    }
+
+    private CouponCodePool codePool(String activityId) {
+        int poolSize = options.code().poolSize();
+        return codePools.computeIfAbsent(activityId, id -> new CouponCodePool(id, () -> generateCodes(id, poolSize)));
+    }
+
+    private Uni<String> nextCode(String activityId) {
+        if (options.code().poolSize() <= 0) {
+            return generateCodes(activityId, 1).map(codes -> codes[0]);
+        }
+        return codePool(activityId).next();
+    }
+
+    // the reason of a rejection in the meters, by its message.
+    private String reasonOf(String message) {
+        if (ERROR_NO_RESERVATION.equals(message)) {
+            return "no_reservation";
+        } else if (ERROR_DUPLICATED_ISSUE.equals(message)) {
+            return "duplicated";
+        } else if (ERROR_RAN_OUT.equals(message)) {
+            return "ran_out";
+        } else if (ERROR_NOT_DRAWN.equals(message)) {
+            return "not_drawn";
+        } else if (ERROR_GETTING_PROMOTION_AMOUNT.equals(message)) {
+            return "no_amount";
+        }
+        return "failed";
+    }
+
+    private void rejected(String activityId, String userId, String message) {
+        metrics.rejected(activityId, reasonOf(message));
+        events.rejected(activityId, userId, message);
+    }
+
+    /**
+     * @return the message of a rejection known on this node without Redis, or null.
+     */
+    private String rejectLocally(String activityId, String userId) {
+        if (!mightHaveReserved(activityId, userId)) {
+            return ERROR_NO_RESERVATION;
+        }
+        ReservationNearCache.State known = nearCache.get(activityId, userId);
+        if (known != null) {
+            return known == ReservationNearCache.State.ISSUED ? ERROR_DUPLICATED_ISSUE : ERROR_NO_RESERVATION;
+        }
+        return null;
+    }
+
+    @Override
+    public Uni<Promotion> issue(String activityId, String userId) {
+        String rejection = rejectLocally(activityId, userId);
+        if (rejection != null) {
+            rejected(activityId, userId, rejection);
+            return Uni.createFrom().failure(new PromotionException(rejection));
+        }
+        Uni<Promotion> issuing = switch (options.issuingMode()) {
+            case LOCK -> issueWithLock(activityId, userId);
+            case SCRIPT -> issueByScript(activityId, userId);
+            case LEASE -> issueByLease(activityId, userId);
+            case LOTTERY -> issueByLottery(activityId, userId);
+        };
+        return settle(activityId, userId, issuing);
+    }
+
+    // counts the outcome of issuing, and keeps the answers which can't change any more.
+    private Uni<Promotion> settle(String activityId, String userId, Uni<Promotion> issuing) {
+        return issuing.invoke(promotion -> {
+            metrics.issued(activityId);
+            events.issued(promotion);
+            nearCache.put(activityId, userId, ReservationNearCache.State.ISSUED);
+        }).onFailure(PromotionException.class).invoke(cause -> {
+            rejected(activityId, userId, cause.getMessage());
+            if (ERROR_DUPLICATED_ISSUE.equals(cause.getMessage())) {
+                nearCache.put(activityId, userId, ReservationNearCache.State.ISSUED);
+            } else if (ERROR_NO_RESERVATION.equals(cause.getMessage())) {
+                nearCache.put(activityId, userId, ReservationNearCache.State.NOT_RESERVED);
+            } else if (ERROR_RAN_OUT.equals(cause.getMessage())) {
+                notifier.soldOut(activityId);
+            }
+        });
+    }
+
+    private Uni<List<Outcome>> outcomes(List<String> userIds, List<Uni<Promotion>> results) {
+        List<Uni<Outcome>> outcomes = new ArrayList<>();
+        for (int i = 0; i < userIds.size(); i++) {
+            String userId = userIds.get(i);
+            outcomes.add(
+                    results.get(i).map(promotion ->
+                            new Outcome(userId, promotion, true, null)
+                    ).onFailure(PromotionException.class).recoverWithItem(cause ->
+                            new Outcome(userId, null, false, cause.getMessage())
+                    )
+            );
+        }
+        if (outcomes.isEmpty()) {
+            return Uni.createFrom().item(List.of());
+        }
+        return Uni.join().all(outcomes).andFailFast();
+    }
+
+    // a script call to the reservations of a shard.
+    private record Call(int shard, RedisScript script, Request request) {
+    }
+
+    /**
+     * Sends the calls in one pipeline per shard, the shards at once.
+     * A pipeline which meets a script unknown to Redis loads its scripts, then is sent again.
+     *
+     * @return the responses in the order of the calls.
+     */
+    private Uni<List<Response>> send(List<Call> calls) {
+        Map<Integer, List<Integer>> byShard = new HashMap<>();
+        for (int i = 0; i < calls.size(); i++) {
+            byShard.computeIfAbsent(calls.get(i).shard(), shard -> new ArrayList<>()).add(i);
+        }
+        Response[] responses = new Response[calls.size()];
+        List<Uni<Void>> batches = new ArrayList<>();
+        byShard.forEach((shard, indexes) -> {
+            List<Request> requests = new ArrayList<>(indexes.size());
+            Set<RedisScript> scripts = new HashSet<>();
+            for (int index : indexes) {
+                requests.add(calls.get(index).request());
+                scripts.add(calls.get(index).script());
+            }
+            batches.add(
+                    redisDataSource.getRedis().batch(
+                            requests
+                    ).onFailure(
+                            RedisScript::isMissing
+                    ).recoverWithUni(() ->
+                            Multi.createFrom().iterable(
+                                    scripts
+                            ).onItem().transformToUniAndConcatenate(script ->
+                                    script.register(redisDataSource)
+                            ).collect().last().chain(() ->
+                                    redisDataSource.getRedis().batch(requests)
+                            )
+                    ).invoke(replies -> {
+                        for (int i = 0; i < indexes.size(); i++) {
+                            responses[indexes.get(i)] = replies.get(i);
+                        }
+                    }).replaceWithVoid()
+            );
+        });
+        if (batches.isEmpty()) {
+            return Uni.createFrom().item(List.of());
+        }
+        return Uni.join().all(batches).andFailFast().map(done -> Arrays.asList(responses));
+    }
+
+    /**
+     * Calls a script on its own, or with the calls of the concurrent requests when they are coalesced.
+     */
+    private Uni<Response> call(int shard, RedisScript script, Request request) {
+        if (coalescer != null) {
+            return coalescer.submit(new Call(shard, script, request));
+        }
+        return script.send(redisDataSource, request);
+    }
+
+    /**
+     * Calls a script for each user of a batch, in one pipeline per shard.
+     *
+     * @return the responses in the order of the users.
+     */
+    private Uni<List<Response>> pipeline(
+            String step,
+            List<String> userIds,
+            RedisScript script,
+            IntFunction<Request> request
+    ) {
+        List<Call> calls = new ArrayList<>(userIds.size());
+        for (int i = 0; i < userIds.size(); i++) {
+            calls.add(new Call(shards.shardOf(userIds.get(i)), script, request.apply(i)));
+        }
+        return metrics.timed(step, send(calls));
+    }
+
+    /**
+     * Reserves for the users of a batch, in one round trip per shard.
+     */
+    @Override
+    public Uni<List<Outcome>> reserveAll(String activityId, List<String> userIds) {
+        Instant reservedTime = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        List<Promotion> reservations = new ArrayList<>(userIds.size());
+        for (String userId : userIds) {
+            reservations.add(reserving(activityId, userId, reservedTime));
+        }
+        return pipeline(
+                "reserve",
+                userIds,
+                reserveScript,
+                i -> reserveRequest(reservations.get(i))
+        ).map(responses -> {
+            List<Outcome> outcomes = new ArrayList<>(userIds.size());
+            for (int i = 0; i < userIds.size(); i++) {
+                outcomes.add(reserved(reservations.get(i), responses.get(i)));
+            }
+            return outcomes;
+        });
+    }
+
+    /**
+     * Issues to the users of a batch. In the SCRIPT mode with a single shard, and in the LOTTERY mode, the scripts
+     * of the users are sent in one round trip per shard; the other modes issue to the users one by one at once.
+     */
+    @Override
+    public Uni<List<Outcome>> issueAll(String activityId, List<String> userIds) {
+        PromotionOptions.IssuingMode mode = options.issuingMode();
+        boolean pipelined = mode == PromotionOptions.IssuingMode.LOTTERY
+                || mode == PromotionOptions.IssuingMode.SCRIPT && shards.count() == 1;
+        if (!pipelined) {
+            List<Uni<Promotion>> results = new ArrayList<>(userIds.size());
+            for (String userId : userIds) {
+                results.add(issue(activityId, userId));
+            }
+            return outcomes(userIds, results);
+        }
+        String[] rejections = new String[userIds.size()];
+        List<String> pending = new ArrayList<>();
+        List<Uni<String>> codes = new ArrayList<>();
+        for (int i = 0; i < userIds.size(); i++) {
+            String userId = userIds.get(i);
+            rejections[i] = rejectLocally(activityId, userId);
+            if (rejections[i] != null) {
+                rejected(activityId, userId, rejections[i]);
+            } else {
+                pending.add(userId);
+                codes.add(nextCode(activityId));
+            }
+        }
+        Uni<List<String>> pendingCodes = codes.isEmpty()
+                ? Uni.createFrom().item(List.of())
+                : Uni.join().all(codes).andFailFast();
+        return pendingCodes.chain(issuedCodes -> {
+            Instant issuedTime = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+            String epochMillis = String.valueOf(issuedTime.toEpochMilli());
+            String iso = DateTimeFormatter.ISO_INSTANT.format(issuedTime);
+            boolean lottery = mode == PromotionOptions.IssuingMode.LOTTERY;
+            return pipeline(
+                    "issue",
+                    pending,
+                    lottery ? issueLotteryScript : issueScript,
+                    i -> {
+                        String userId = pending.get(i);
+                        int shard = shards.shardOf(userId);
+                        List<String> keys = lottery
+                                ? List.of(
+                                shards.hash(activityId, shard),
+                                shards.winner(activityId, shard),
+                                shards.amount(activityId, shard)
+                        )
+                                : List.of(
+                                shards.hash(activityId, shard),
+                                String.join(":", key, "amount", activityId)
                         );
-                        return Uni.createFrom().failure(
-                                new PromotionException(ERROR_RESERVE)
+                        return (lottery ? issueLotteryScript : issueScript).request(
+                                keys,
+                                userId,
+                                issuedCodes.get(i),
+                                epochMillis,
+                                iso
                         );
                     }
-                });
-            } else {
-                return Uni.createFrom().item(promotion);
+            );
+        }).chain(responses -> {
+            List<Uni<Promotion>> results = new ArrayList<>(userIds.size());
+            int next = 0;
+            for (int i = 0; i < userIds.size(); i++) {
+                String userId = userIds.get(i);
+                if (rejections[i] == null) {
+                    results.add(settle(activityId, userId, issued(activityId, userId, responses.get(next++))));
+                } else {
+                    results.add(Uni.createFrom().failure(new PromotionException(rejections[i])));
+                }
+            }
+            return outcomes(userIds, results);
+        });
+    }
+
+    /**
+     * @return true if the promotion amount has run out, and this node has no leased coupons left.
+     */
+    @Override
+    public boolean isSoldOut(String activityId) {
+        if (!notifier.isSoldOut(activityId)) {
+            return false;
+        }
+        StockLease lease = leases.get(activityId);
+        return lease == null || lease.isEmpty();
+    }
+
+    /**
+     * @return the coupons not issued yet, without those leased by the nodes, or null before the amount is counted.
+     */
+    @Override
+    public Uni<Long> remaining(String activityId) {
+        if (options.issuingMode() != PromotionOptions.IssuingMode.LOTTERY) {
+            return redisDataSource.value(
+                    String.class
+            ).get(
+                    String.join(":", key, "amount", activityId)
+            ).map(value ->
+                    value == null ? null : Math.max(Long.parseLong(value), 0)
+            );
+        }
+        // the drawn users left are counted by shard, read them one by one, the shards are in different slots.
+        List<Uni<String>> values = new ArrayList<>();
+        for (int shard = 0; shard < shards.count(); shard++) {
+            values.add(
+                    redisDataSource.value(
+                            String.class
+                    ).get(
+                            shards.amount(activityId, shard)
+                    )
+            );
+        }
+        return Uni.join().all(
+                values
+        ).andFailFast().map(amounts -> {
+            long total = 0;
+            for (String value : amounts) {
+                if (value == null) {
+                    return null;
+                }
+                total += Long.parseLong(value);
+            }
+            return total;
+        });
+    }
+
+    private Uni<Promotion> issueByLottery(String activityId, String userId) {
+        // the winners are drawn in prepare, only look up the user and write the coupon in one round trip.
+        int shard = shards.shardOf(userId);
+        return nextCode(
+                activityId
+        ).chain(code -> {
+            Instant issuedTime = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+            return metrics.timed("issue", call(shard, issueLotteryScript, issueLotteryScript.request(
+                    List.of(
+                            shards.hash(activityId, shard),
+                            shards.winner(activityId, shard),
+                            shards.amount(activityId, shard)
+                    ),
+                    userId,
+                    code,
+                    String.valueOf(issuedTime.toEpochMilli()),
+                    DateTimeFormatter.ISO_INSTANT.format(issuedTime)
+            )));
+        }).chain(response ->
+                issued(activityId, userId, response)
+        );
+    }
+
+    private Uni<Promotion> issueByScript(String activityId, String userId) {
+        if (shards.count() > 1) {
+            return issueBySharedAmount(activityId, userId);
+        }
+        // check the reservation, take one from total amount and write the coupon in one round trip.
+        return nextCode(
+                activityId
+        ).chain(code -> {
+            Instant issuedTime = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+            return metrics.timed("issue", call(0, issueScript, issueScript.request(
+                    List.of(
+                            hashOf(activityId, userId),
+                            String.join(":", key, "amount", activityId)
+                    ),
+                    userId,
+                    code,
+                    String.valueOf(issuedTime.toEpochMilli()),
+                    DateTimeFormatter.ISO_INSTANT.format(issuedTime)
+            )));
+        }).chain(response ->
+                issued(activityId, userId, response)
+        );
+    }
+
+    private Uni<Promotion> issueBySharedAmount(String activityId, String userId) {
+        // the amount is not in the slot of the shard, a script can't touch both in a cluster,
+        // so take one from the amount first, like a lease of one coupon, then write the coupon in the shard.
+        // the users refused in memory by issue(), not reserved or issued already, never take one.
+        return metrics.timed("lease", leaseScript.execute(
+                redisDataSource,
+                List.of(String.join(":", key, "amount", activityId)),
+                "1"
+        )).chain(response -> {
+            long granted = response.toLong();
+            if (granted > 0) {
+                return issueInShard(activityId, userId);
+            }
+            String message = granted == 0 ? ERROR_RAN_OUT : ERROR_GETTING_PROMOTION_AMOUNT;
+            return Uni.createFrom().failure(new PromotionException(message));
+        }).chain(response -> {
+            if (response.get(0).toInteger() > 0) {
+                return issued(activityId, userId, response);
             }
+            // the coupon is not issued, give it back to the amount, the nodes may have been told it ran out meanwhile.
+            return restock(
+                    activityId
+            ).chain(() ->
+                    issued(activityId, userId, response)
+            );
         });
     }
 
-    public Uni<Void> prepare(String activityId, String whom) {
-        return lock(
+    private Uni<Response> issueInShard(String activityId, String userId) {
+        return nextCode(
+                activityId
+        ).chain(code -> {
+            Instant issuedTime = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+            return metrics.timed("issue", call(shards.shardOf(userId), issueScript, issueScript.request(
+                    List.of(hashOf(activityId, userId)),
+                    userId,
+                    code,
+                    String.valueOf(issuedTime.toEpochMilli()),
+                    DateTimeFormatter.ISO_INSTANT.format(issuedTime)
+            )));
+        });
+    }
+
+    private Uni<Promotion> issueByLease(String activityId, String userId) {
+        StockLease lease = leases.computeIfAbsent(activityId, id -> new StockLease());
+        // take one from the lease of this node, then check the reservation and write the coupon in one round trip.
+        return acquire(
                 activityId,
-                "promotion-timer-" + whom
-        ).chain(v ->
-                calculateAmount(activityId)
-        ).chain(amount -> {
-            Log.info(activityId + ": total amount of promotion is " + amount);
-            return release(activityId);
+                lease
+        ).chain(() ->
+                issueInShard(activityId, userId)
+        ).chain(response -> {
+            if (response.get(0).toInteger() > 0) {
+                return issued(activityId, userId, response);
+            }
+            // the coupon is not issued, put it back to the lease.
+            Uni<Void> putBack = lease.release(1) ? Uni.createFrom().voidItem() : giveBack(activityId, 1);
+            return putBack.chain(() -> issued(activityId, userId, response));
         });
     }
 
-    public Uni<Promotion> issue(String activityId, String userId) {
+    private Uni<Promotion> issued(String activityId, String userId, Response response) {
+        int status = response.get(0).toInteger();
+        if (status > 0) {
+            try {
+                return Uni.createFrom().item(
+                        PromotionCodec.decode(
+                                response.get(1).toBytes(),
+                                activityId,
+                                userId
+                        )
+                );
+            } catch (Exception e) {
+                return Uni.createFrom().failure(e);
+            }
+        }
+        String message = switch (status) {
+            case -1 -> ERROR_NO_RESERVATION;
+            case -2 -> ERROR_DUPLICATED_ISSUE;
+            case -3 -> ERROR_GETTING_PROMOTION_AMOUNT;
+            case -4 -> ERROR_RAN_OUT;
+            case -5 -> ERROR_NOT_DRAWN;
+            default -> ERROR_ISSUE;
+        };
+        return Uni.createFrom().failure(new PromotionException(message));
+    }
+
+    private Uni<Promotion> issueWithLock(String activityId, String userId) {
         return isReserved(
                 activityId,
                 userId
@@ -228,30 +1192,24 @@ public class PromotionCache {
                 if (promotion.getIssuedTime() == null) {
                     // take one from total amount
                     return decentAmount(activityId)
-                            .chain(amount -> {
-                                promotion.setCode(new RandomString().next())
-                                        .setIssuedTime(Instant.now());
-                                return redisDataSource.hash(
+                            .chain(() -> nextCode(activityId))
+                            .chain(code -> {
+                                promotion.setCode(code)
+                                        .setIssuedTime(Instant.now().truncatedTo(ChronoUnit.MILLIS));
+                                return metrics.timed("hset", redisDataSource.hash(
                                         String.class,
                                         String.class,
-                                        String.class
+                                        byte[].class
                                 ).hset(
-                                        String.join(":", key, activityId),
+                                        hashOf(activityId, userId),
                                         userId,
-                                        Json.encode(promotion.toMap())
-                                ).chain(success -> {
+                                        PromotionCodec.encode(promotion)
+                                )).chain(success -> {
                                     // false means data have been update, true means data have been created.
                                     // in here, not allow to create data.
                                     if (!success) {
                                         return Uni.createFrom().item(promotion);
                                     } else {
-                                        Log.error(
-                                                String.join(
-                                                        " - ",
-                                                        activityId,
-                                                        userId
-                                                ) + ": " + ERROR_ISSUE
-                                        );
                                         return reclaim(
                                                 activityId,
                                                 userId
@@ -264,25 +1222,11 @@ public class PromotionCache {
                                 });
                             });
                 } else {
-                    Log.error(
-                            String.join(
-                                    " - ",
-                                    activityId,
-                                    userId
-                            ) + ": " + ERROR_DUPLICATED_ISSUE
-                    );
                     return Uni.createFrom().failure(
                             new PromotionException(ERROR_DUPLICATED_ISSUE)
                     );
                 }
             } else {
-                Log.error(
-                        String.join(
-                                " - ",
-                                activityId,
-                                userId
-                        ) + ": " + ERROR_NO_RESERVATION
-                );
                 return Uni.createFrom().failure(new PromotionException(ERROR_NO_RESERVATION));
             }
         }).eventually(() ->
@@ -290,33 +1234,58 @@ public class PromotionCache {
         );
     }
 
-    private Uni<Void> reclaim(String activityId, String userId) {
-        return redisDataSource.hash(
-                String.class,
-                String.class,
-                String.class
-        ).hdel(
-                String.join(":", key, activityId),
+    @Override
+    public Uni<Void> reclaim(String activityId, String userId) {
+        nearCache.invalidate(activityId, userId);
+        if (options.issuingMode() == PromotionOptions.IssuingMode.LOCK) {
+            return metrics.timed("reclaim", redisDataSource.hash(
+                    String.class,
+                    String.class,
+                    String.class
+            ).hdel(
+                    hashOf(activityId, userId),
+                    userId
+            )).chain(result -> {
+                if (result > 0) {
+                    return increaseAmount(activityId).invoke(() -> notifier.restocked(activityId)).replaceWithVoid();
+                }
+                return Uni.createFrom().voidItem();
+            });
+        }
+        int shard = shards.shardOf(userId);
+        if (options.issuingMode() == PromotionOptions.IssuingMode.LOTTERY) {
+            // only the drawn users are issued, a coupon given back could never be issued to anyone else,
+            // so the amount is left as it is.
+            return metrics.timed("reclaim", reclaimScript.execute(
+                    redisDataSource,
+                    List.of(shards.hash(activityId, shard)),
+                    userId
+            )).replaceWithVoid();
+        }
+        if (shards.count() == 1) {
+            return metrics.timed("reclaim", reclaimScript.execute(
+                    redisDataSource,
+                    List.of(
+                            shards.hash(activityId, shard),
+                            String.join(":", key, "amount", activityId)
+                    ),
+                    userId
+            )).invoke(response -> {
+                if (response.toInteger() > 0) {
+                    notifier.restocked(activityId);
+                }
+            }).replaceWithVoid();
+        }
+        // the amount is in another slot, give the coupon back after the script.
+        return metrics.timed("reclaim", reclaimScript.execute(
+                redisDataSource,
+                List.of(shards.hash(activityId, shard)),
                 userId
-        ).chain(result -> {
-            if (result > 0) {
-                return increaseAmount(activityId).replaceWithVoid();
+        )).chain(response -> {
+            if (response.toInteger() > 0) {
+                return restock(activityId);
             }
             return Uni.createFrom().voidItem();
         });
     }
-
-    private class RandomString {
-        // avoid to use 0, 1, o, O, l, I that are hard to recognize.
-        private final String characters = "ABCDEFGHJKLMNPQRSTUVWXYZabcdefghijkmnpqrstuvwxyz23456789";
-        private final int length = 8;
-
-        public String next() {
-            StringBuilder builder = new StringBuilder();
-            for (int i = 0; i < length; i++) {
-                builder.append(characters.charAt((int) (Math.random() * characters.length())));
-            }
-            return builder.toString();
-        }
-    }
 }
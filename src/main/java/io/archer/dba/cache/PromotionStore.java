@@ -0,0 +1,77 @@
+package io.archer.dba.cache;
+
+import io.archer.model.Activity;
+import io.archer.model.Promotion;
+import io.smallrye.mutiny.Uni;
+
+import java.util.List;
+
+/**
+ * Where the reservations and the promotion amount of the activities are kept while they run.
+ * <p>
+ * {@link PromotionCache} keeps them in Redis, shared by the nodes, {@link MemoryPromotionStore} keeps them on this
+ * node only, for a single node. The engine is chosen by {@code promotion.store}. A refused request fails with a
+ * {@link io.archer.exception.PromotionException}, with the same messages in every engine.
+ */
+public interface PromotionStore {
+    /**
+     * The outcome of a user, the promotion and whether this request has written it, or the message of the
+     * {@link io.archer.exception.PromotionException} of a user in a batch.
+     */
+    record Outcome(String userId, Promotion promotion, boolean created, String error) {
+    }
+
+    /**
+     * @return the reservation of the user, or null if the user has not reserved.
+     */
+    Uni<Promotion> isReserved(String activityId, String userId);
+
+    Uni<Promotion> reserve(String activityId, String userId);
+
+    /**
+     * Reserves for a user, or answers the reservation the user already has, so concurrent requests of a user get
+     * the same reservation.
+     *
+     * @return the reservation, created if this request has written it.
+     */
+    Uni<Outcome> reserveIfAbsent(String activityId, String userId);
+
+    /**
+     * @return the outcomes of the users, in their order.
+     */
+    Uni<List<Outcome>> reserveAll(String activityId, List<String> userIds);
+
+    /**
+     * Counts the amount of an activity when its reservation closes, the issuing starts after it.
+     *
+     * @param whom the node or the timer which prepares the activity.
+     */
+    Uni<Void> prepare(Activity activity, String whom);
+
+    /**
+     * Closes the issuing of an activity.
+     */
+    Uni<Void> close(String activityId);
+
+    Uni<Promotion> issue(String activityId, String userId);
+
+    /**
+     * @return the outcomes of the users, in their order.
+     */
+    Uni<List<Outcome>> issueAll(String activityId, List<String> userIds);
+
+    /**
+     * @return true if the promotion amount has run out, read without a round trip.
+     */
+    boolean isSoldOut(String activityId);
+
+    /**
+     * @return the coupons not issued yet, or null before the amount is counted.
+     */
+    Uni<Long> remaining(String activityId);
+
+    /**
+     * Removes the reservation of a user, and gives its coupon back to the amount if it has been issued.
+     */
+    Uni<Void> reclaim(String activityId, String userId);
+}
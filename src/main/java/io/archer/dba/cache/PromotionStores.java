@@ -0,0 +1,26 @@
+package io.archer.dba.cache;
+
+import io.archer.PromotionOptions;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Instance;
+import jakarta.enterprise.inject.Produces;
+import jakarta.inject.Singleton;
+
+/**
+ * Picks the {@link PromotionStore} of {@code promotion.store}, the other engine is never created.
+ */
+@ApplicationScoped
+public class PromotionStores {
+    @Produces
+    @Singleton
+    PromotionStore store(
+            PromotionOptions options,
+            Instance<PromotionCache> redis,
+            Instance<MemoryPromotionStore> memory
+    ) {
+        return switch (options.store()) {
+            case REDIS -> redis.get();
+            case MEMORY -> memory.get();
+        };
+    }
+}
@@ -0,0 +1,108 @@
+package io.archer.dba.cache;
+
+import io.quarkus.redis.datasource.ReactiveRedisDataSource;
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.redis.client.Command;
+import io.vertx.mutiny.redis.client.Request;
+import io.vertx.mutiny.redis.client.Response;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * A Lua script shipped in {@code src/main/resources/scripts}.
+ * <p>
+ * The script is called by its SHA1 digest, so the source is only sent to Redis once,
+ * the first time a server answers {@code NOSCRIPT}. A pipeline of calls loads the script with
+ * {@code SCRIPT LOAD} instead, then sends the pipeline again.
+ */
+class RedisScript {
+    static RedisScript load(String name) {
+        String path = "scripts/" + name + ".lua";
+        try (InputStream in = RedisScript.class.getClassLoader().getResourceAsStream(path)) {
+            if (in == null) {
+                throw new IllegalStateException("missing redis script: " + path);
+            }
+            return new RedisScript(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private final String source;
+    private final String sha;
+
+    private RedisScript(String source) {
+        this.source = source;
+        try {
+            this.sha = HexFormat.of().formatHex(
+                    MessageDigest.getInstance("SHA-1").digest(source.getBytes(StandardCharsets.UTF_8))
+            );
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public Uni<Response> execute(ReactiveRedisDataSource redisDataSource, List<String> keys, String... args) {
+        return redisDataSource.execute(
+                "EVALSHA",
+                arguments(sha, keys, args)
+        ).onFailure(
+                RedisScript::isMissing
+        ).recoverWithUni(() ->
+                redisDataSource.execute("EVAL", arguments(source, keys, args))
+        );
+    }
+
+    /**
+     * @return a call of the script, to be sent in a pipeline.
+     */
+    public Request request(List<String> keys, String... args) {
+        Request request = Request.cmd(Command.EVALSHA).arg(sha).arg(keys.size());
+        for (String key : keys) {
+            request.arg(key);
+        }
+        for (String arg : args) {
+            request.arg(arg);
+        }
+        return request;
+    }
+
+    /**
+     * Sends a call built by {@link #request(List, String...)}, which may carry binary arguments.
+     */
+    public Uni<Response> send(ReactiveRedisDataSource redisDataSource, Request request) {
+        return redisDataSource.getRedis().send(
+                request
+        ).onFailure(
+                RedisScript::isMissing
+        ).recoverWithUni(() ->
+                register(redisDataSource).chain(() -> redisDataSource.getRedis().send(request))
+        );
+    }
+
+    public Uni<Void> register(ReactiveRedisDataSource redisDataSource) {
+        return redisDataSource.execute("SCRIPT", "LOAD", source).replaceWithVoid();
+    }
+
+    static boolean isMissing(Throwable cause) {
+        return cause.getMessage() != null && cause.getMessage().startsWith("NOSCRIPT");
+    }
+
+    private static String[] arguments(String script, List<String> keys, String... args) {
+        String[] arguments = new String[2 + keys.size() + args.length];
+        arguments[0] = script;
+        arguments[1] = String.valueOf(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            arguments[2 + i] = keys.get(i);
+        }
+        System.arraycopy(args, 0, arguments, 2 + keys.size(), args.length);
+        return arguments;
+    }
+}
@@ -0,0 +1,93 @@
+package io.archer.dba.cache;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A Bloom filter of the users who reserved an activity.
+ * <p>
+ * A user who is not in the filter has surely not reserved, a user in the filter has reserved or is a false positive,
+ * and must be looked up. The filter is built once the reservation closes, and only grows after, with the reservations
+ * written by this node, so it never refuses a user who has reserved.
+ * <p>
+ * The bits are kept in {@code 1 + 8 + 8 * words} bytes: the number of hash functions, the number of words and the
+ * words in big-endian, which is how a filter is passed between the nodes.
+ */
+class ReservationFilter {
+    private final int hashes;
+    private final AtomicLongArray words;
+    private final long bits;
+
+    private ReservationFilter(int hashes, AtomicLongArray words) {
+        this.hashes = hashes;
+        this.words = words;
+        this.bits = (long) words.length() * Long.SIZE;
+    }
+
+    /**
+     * Sizes a filter for the number of users and the false positive rate, but no larger than the memory budget,
+     * a larger activity has a higher false positive rate instead.
+     */
+    public static ReservationFilter create(long users, double falsePositiveRate, long maximumBytes) {
+        long n = Math.max(users, 1);
+        double optimal = Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        long words = Math.max((long) Math.ceil(optimal / Long.SIZE), 1);
+        words = Math.min(words, Math.max(maximumBytes / Long.BYTES, 1));
+        words = Math.min(words, Integer.MAX_VALUE - 8);
+        int hashes = (int) Math.max(1, Math.min(Math.round((double) words * Long.SIZE / n * Math.log(2)), 16));
+        return new ReservationFilter(hashes, new AtomicLongArray((int) words));
+    }
+
+    public void add(String userId) {
+        long h1 = LotteryDraw.mix(LotteryDraw.hash(0, userId));
+        long h2 = LotteryDraw.mix(h1) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bits);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current = words.get(word);
+            while ((current & mask) == 0 && !words.compareAndSet(word, current, current | mask)) {
+                current = words.get(word);
+            }
+        }
+    }
+
+    public boolean mightContain(String userId) {
+        long h1 = LotteryDraw.mix(LotteryDraw.hash(0, userId));
+        long h2 = LotteryDraw.mix(h1) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bits);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int sizeInBytes() {
+        return words.length() * Long.BYTES;
+    }
+
+    public byte[] toBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(1 + Long.BYTES + sizeInBytes());
+        buffer.put((byte) hashes).putLong(words.length());
+        for (int i = 0; i < words.length(); i++) {
+            buffer.putLong(words.get(i));
+        }
+        return buffer.array();
+    }
+
+    public static ReservationFilter fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        int hashes = buffer.get();
+        long length = buffer.getLong();
+        if (hashes < 1 || length < 1 || length * Long.BYTES != buffer.remaining()) {
+            throw new IllegalArgumentException("not a reservation filter: " + bytes.length + " bytes");
+        }
+        AtomicLongArray words = new AtomicLongArray((int) length);
+        for (int i = 0; i < length; i++) {
+            words.set(i, buffer.getLong());
+        }
+        return new ReservationFilter(hashes, words);
+    }
+}
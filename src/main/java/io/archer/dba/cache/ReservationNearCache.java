@@ -0,0 +1,97 @@
+package io.archer.dba.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.archer.PromotionOptions;
+import io.archer.model.Activity;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The final answers of issuing kept on this node, so the retries of the users who can't have a coupon are refused
+ * without a round trip.
+ * <p>
+ * Only the activities whose reservation has closed on this node are kept, then "no reservation" can't change, and
+ * "has been issued" only changes when the reservation is reclaimed. The answers expire when the issuing closes.
+ * The writes of this node drop the answer of the user, a reclaim on another node is not seen, and the user is
+ * refused as issued instead of not reserved.
+ */
+class ReservationNearCache {
+    enum State {
+        NOT_RESERVED,
+        ISSUED
+    }
+
+    private record Key(String activityId, String userId) {
+    }
+
+    private record Answer(State state, long expiresAt) {
+    }
+
+    private final boolean enabled;
+
+    // the end of the issuing of the activities prepared on this node, in epoch millis.
+    private final ConcurrentHashMap<String, Long> issuingEnds = new ConcurrentHashMap<>();
+
+    private final Cache<Key, Answer> answers;
+
+    ReservationNearCache(PromotionOptions.NearCache options) {
+        enabled = options.enabled();
+        answers = Caffeine.newBuilder()
+                .maximumSize(options.maximumSize())
+                .expireAfter(new Expiry<Key, Answer>() {
+                    @Override
+                    public long expireAfterCreate(Key key, Answer answer, long currentTime) {
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(answer.expiresAt() - System.currentTimeMillis(), 0));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(Key key, Answer answer, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, answer, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(Key key, Answer answer, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * Starts to keep the answers of an activity, when its reservation closes.
+     */
+    public void open(Activity activity) {
+        if (enabled && activity.getIssuingTime() != null && activity.getIssuingDuration() != null) {
+            issuingEnds.put(activity.getId(), activity.getIssuingEnd().toEpochMilli());
+        }
+    }
+
+    public void close(String activityId) {
+        issuingEnds.remove(activityId);
+    }
+
+    /**
+     * @return the answer kept for the user, or null if the user must be looked up.
+     */
+    public State get(String activityId, String userId) {
+        if (!issuingEnds.containsKey(activityId)) {
+            return null;
+        }
+        Answer answer = answers.getIfPresent(new Key(activityId, userId));
+        return answer == null ? null : answer.state();
+    }
+
+    public void put(String activityId, String userId, State state) {
+        Long issuingEnd = issuingEnds.get(activityId);
+        if (issuingEnd != null && issuingEnd > System.currentTimeMillis()) {
+            answers.put(new Key(activityId, userId), new Answer(state, issuingEnd));
+        }
+    }
+
+    public void invalidate(String activityId, String userId) {
+        answers.invalidate(new Key(activityId, userId));
+    }
+}
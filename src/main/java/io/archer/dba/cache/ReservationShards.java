@@ -0,0 +1,48 @@
+package io.archer.dba.cache;
+
+/**
+ * The keys of the reservations of an activity, spread over shards by the user id.
+ * <p>
+ * Each shard has its own reservation hash, and the winner set and amount of a lottery, which share one hash tag,
+ * so a script on one shard touches a single cluster slot while the shards spread over the cluster.
+ * One shard keeps the keys without a hash tag, as they were before sharding.
+ * <p>
+ * The user of a reservation is routed by the number of shards, it must not change while an activity is running.
+ */
+class ReservationShards {
+    private final String prefix;
+    private final int shards;
+
+    ReservationShards(String prefix, int shards) {
+        if (shards < 1) {
+            throw new IllegalArgumentException("at least one shard is required: " + shards);
+        }
+        this.prefix = prefix;
+        this.shards = shards;
+    }
+
+    public int count() {
+        return shards;
+    }
+
+    public int shardOf(String userId) {
+        return Math.floorMod(userId.hashCode(), shards);
+    }
+
+    public String hash(String activityId, int shard) {
+        return key(null, activityId, shard);
+    }
+
+    public String amount(String activityId, int shard) {
+        return key("amount", activityId, shard);
+    }
+
+    public String winner(String activityId, int shard) {
+        return key("winner", activityId, shard);
+    }
+
+    private String key(String name, String activityId, int shard) {
+        String tagged = shards == 1 ? activityId : "{" + activityId + ":" + shard + "}";
+        return name == null ? String.join(":", prefix, tagged) : String.join(":", prefix, name, tagged);
+    }
+}
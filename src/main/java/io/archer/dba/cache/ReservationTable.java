@@ -0,0 +1,172 @@
+package io.archer.dba.cache;
+
+import io.archer.model.Promotion;
+import io.archer.model.PromotionCodec;
+
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
+
+/**
+ * The reservations of a segment of an activity, in an open-addressing table keyed by the user id.
+ * <p>
+ * The user ids are kept in an array probed linearly, the promotion of the i-th user in the i-th slot of
+ * {@link PromotionCodec#LENGTH} bytes of one buffer, on the heap or off it, so a reservation costs a reference and
+ * 42 bytes, without an entry object. The table grows when it is 2/3 full, a removed user shifts the users probed
+ * after it back, so there are no tombstones. It is not thread-safe, the callers lock it.
+ */
+class ReservationTable {
+    // the offset of the flags in a slot, bit 0 is set when the coupon is issued.
+    private static final int FLAGS = 1;
+
+    private final boolean offHeap;
+    private String[] keys;
+    private ByteBuffer slots;
+    private int shift;
+    private int size;
+
+    ReservationTable(int initialCapacity, boolean offHeap) {
+        this.offHeap = offHeap;
+        int capacity = 16;
+        while (capacity < initialCapacity + initialCapacity / 2) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        keys = new String[capacity];
+        slots = offHeap
+                ? ByteBuffer.allocateDirect(capacity * PromotionCodec.LENGTH)
+                : ByteBuffer.allocate(capacity * PromotionCodec.LENGTH);
+        shift = Integer.numberOfLeadingZeros(capacity - 1);
+    }
+
+    // the first index probed for a user, from the high bits of a Fibonacci hash, the segments take the low bits.
+    private int home(String userId) {
+        return (userId.hashCode() * 0x9E3779B9) >>> shift;
+    }
+
+    private int next(int index) {
+        return (index + 1) & (keys.length - 1);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the index of the user, or -1 if the user has not reserved.
+     */
+    public int indexOf(String userId) {
+        for (int index = home(userId); keys[index] != null; index = next(index)) {
+            if (keys[index].equals(userId)) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    public boolean isIssued(int index) {
+        return (slots.get(index * PromotionCodec.LENGTH + FLAGS) & 1) != 0;
+    }
+
+    public Promotion read(int index) {
+        return PromotionCodec.decode(
+                slots.duplicate().position(index * PromotionCodec.LENGTH)
+        ).setUser(keys[index]);
+    }
+
+    public void write(int index, Promotion promotion) {
+        PromotionCodec.encode(promotion, slots.duplicate().position(index * PromotionCodec.LENGTH));
+    }
+
+    /**
+     * @return the reservation of the user, or null if the user has not reserved.
+     */
+    public Promotion get(String userId) {
+        int index = indexOf(userId);
+        return index < 0 ? null : read(index);
+    }
+
+    /**
+     * Adds the reservation unless the user has one.
+     *
+     * @return the reservation the user already has, or null if it is added.
+     */
+    public Promotion putIfAbsent(Promotion promotion) {
+        String userId = promotion.getUser();
+        int index = home(userId);
+        for (; keys[index] != null; index = next(index)) {
+            if (keys[index].equals(userId)) {
+                return read(index);
+            }
+        }
+        if ((size + 1) * 3 > keys.length * 2) {
+            grow();
+            index = home(userId);
+            while (keys[index] != null) {
+                index = next(index);
+            }
+        }
+        keys[index] = userId;
+        write(index, promotion);
+        size++;
+        return null;
+    }
+
+    /**
+     * @return the removed reservation, or null if the user has not reserved.
+     */
+    public Promotion remove(String userId) {
+        int index = indexOf(userId);
+        if (index < 0) {
+            return null;
+        }
+        Promotion removed = read(index);
+        keys[index] = null;
+        size--;
+        // move back the users which can't be reached any more through the emptied index.
+        for (int scan = next(index); keys[scan] != null; scan = next(scan)) {
+            int home = home(keys[scan]);
+            boolean reachable = index <= scan
+                    ? index < home && home <= scan
+                    : index < home || home <= scan;
+            if (!reachable) {
+                move(scan, index);
+                index = scan;
+            }
+        }
+        return removed;
+    }
+
+    private void move(int from, int to) {
+        keys[to] = keys[from];
+        keys[from] = null;
+        slots.put(to * PromotionCodec.LENGTH, slots, from * PromotionCodec.LENGTH, PromotionCodec.LENGTH);
+    }
+
+    private void grow() {
+        String[] oldKeys = keys;
+        ByteBuffer oldSlots = slots;
+        allocate(oldKeys.length * 2);
+        for (int from = 0; from < oldKeys.length; from++) {
+            if (oldKeys[from] == null) {
+                continue;
+            }
+            int to = home(oldKeys[from]);
+            while (keys[to] != null) {
+                to = next(to);
+            }
+            keys[to] = oldKeys[from];
+            slots.put(to * PromotionCodec.LENGTH, oldSlots, from * PromotionCodec.LENGTH, PromotionCodec.LENGTH);
+        }
+    }
+
+    public void forEachUser(Consumer<String> action) {
+        for (String key : keys) {
+            if (key != null) {
+                action.accept(key);
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package io.archer.dba.cache;
+
+import io.smallrye.mutiny.Uni;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
+
+/**
+ * The coupons a node has leased from the promotion amount of one activity.
+ * <p>
+ * Coupons are handed out from an in-process counter, only an empty lease goes back to Redis for
+ * another block, and concurrent callers share the same refill instead of each leasing a block.
+ */
+class StockLease {
+    // a closed lease stays far below zero, whatever is released into it afterwards.
+    private static final long CLOSED = Long.MIN_VALUE / 2;
+
+    private final AtomicLong tokens = new AtomicLong();
+    private final AtomicReference<CompletableFuture<Long>> refilling = new AtomicReference<>();
+
+    public boolean tryAcquire() {
+        long current;
+        do {
+            current = tokens.get();
+            if (current <= 0) {
+                return false;
+            }
+        } while (!tokens.compareAndSet(current, current - 1));
+        return true;
+    }
+
+    public boolean isEmpty() {
+        return tokens.get() <= 0;
+    }
+
+    /**
+     * Gives coupons back to the lease.
+     *
+     * @return false if the lease has been closed, the coupons must go back to the shared amount instead.
+     */
+    public boolean release(long count) {
+        return tokens.addAndGet(count) > 0;
+    }
+
+    /**
+     * Leases another block with the given call, or joins the refill which is already in flight.
+     * A block which arrives after the lease is closed is handed to {@code giveBack}.
+     *
+     * @return the number of leased coupons, 0 when ran out, or a negative status of the lease call.
+     */
+    public Uni<Long> refill(Supplier<Uni<Long>> lease, LongFunction<Uni<Void>> giveBack) {
+        CompletableFuture<Long> next = new CompletableFuture<>();
+        CompletableFuture<Long> current = refilling.compareAndExchange(null, next);
+        if (current != null) {
+            return Uni.createFrom().completionStage(current);
+        }
+        lease.get().chain(granted -> {
+            if (granted > 0 && !release(granted)) {
+                return giveBack.apply(granted).replaceWith(0L);
+            }
+            return Uni.createFrom().item(granted);
+        }).subscribe().with(granted -> {
+            refilling.set(null);
+            next.complete(granted);
+        }, cause -> {
+            refilling.set(null);
+            next.completeExceptionally(cause);
+        });
+        return Uni.createFrom().completionStage(next);
+    }
+
+    /**
+     * Stops the lease.
+     *
+     * @return the unused coupons which should go back to the shared amount.
+     */
+    public long close() {
+        return Math.max(tokens.getAndSet(CLOSED), 0);
+    }
+}
@@ -0,0 +1,131 @@
+package io.archer.dba.cache;
+
+import io.archer.PromotionOptions;
+import io.quarkus.logging.Log;
+import io.quarkus.redis.client.RedisClientName;
+import io.quarkus.redis.datasource.ReactiveRedisDataSource;
+import io.quarkus.redis.datasource.pubsub.ReactivePubSubCommands;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.operators.multi.processors.BroadcastProcessor;
+import io.smallrye.mutiny.operators.multi.processors.SerializedProcessor;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The activities whose promotion amount has run out, shared by the nodes through Redis pub/sub.
+ * <p>
+ * The first node refused for running out publishes the activity, and every node refuses the issuing of it in memory
+ * after. A coupon given back by a reclaim publishes the activity again as restocked. Only the Redis engine uses it,
+ * so it doesn't subscribe with another {@code promotion.store}, which runs without Redis.
+ */
+@ApplicationScoped
+public class StockNotifier {
+    @Inject
+    @RedisClientName("promotion")
+    private ReactiveRedisDataSource redisDataSource;
+
+    @Inject
+    private PromotionOptions options;
+
+    // the channel of the stock events, as `sold-out:<activity>` or `restocked:<activity>`.
+    private final String channel = "promotion:stock";
+
+    private final Set<String> soldOut = ConcurrentHashMap.newKeySet();
+
+    // the activities whose stock changed on this node, by either event.
+    private final BroadcastProcessor<String> broadcast = BroadcastProcessor.create();
+    // the events come from the event loops and the pub/sub handler at once, they are passed on one at a time.
+    private final SerializedProcessor<String, String> changes = broadcast.serialized();
+
+    private ReactivePubSubCommands.ReactiveRedisSubscriber subscriber;
+
+    void onStart(@Observes StartupEvent event) {
+        if (options.store() != PromotionOptions.Store.REDIS) {
+            return;
+        }
+        subscriber = redisDataSource.pubsub(
+                String.class
+        ).subscribe(
+                channel,
+                this::received
+        ).await().indefinitely();
+    }
+
+    private void received(String message) {
+        int separator = message.indexOf(':');
+        String activityId = message.substring(separator + 1);
+        switch (message.substring(0, separator)) {
+            case "sold-out" -> {
+                if (soldOut.add(activityId)) {
+                    changes.onNext(activityId);
+                }
+            }
+            case "restocked" -> {
+                if (soldOut.remove(activityId)) {
+                    changes.onNext(activityId);
+                }
+            }
+            default -> Log.error("Unknown stock event: " + message);
+        }
+    }
+
+    public boolean isSoldOut(String activityId) {
+        return soldOut.contains(activityId);
+    }
+
+    /**
+     * @return the activities whose stock has changed, sold out or restocked.
+     */
+    public Multi<String> changes() {
+        return broadcast;
+    }
+
+    public void soldOut(String activityId) {
+        if (soldOut.add(activityId)) {
+            changes.onNext(activityId);
+            publish("sold-out:" + activityId);
+        }
+    }
+
+    public void restocked(String activityId) {
+        // another node may have been told the activity is sold out, so always publish it.
+        if (soldOut.remove(activityId)) {
+            changes.onNext(activityId);
+        }
+        publish("restocked:" + activityId);
+    }
+
+    /**
+     * Forgets the activity on this node, when it is prepared or closed.
+     */
+    public void reset(String activityId) {
+        soldOut.remove(activityId);
+    }
+
+    private void publish(String message) {
+        redisDataSource.pubsub(
+                String.class
+        ).publish(
+                channel,
+                message
+        ).subscribe().with(v -> {
+        }, cause ->
+                Log.error("Failed to publish the stock event " + message + ".", cause)
+        );
+    }
+
+    @PreDestroy
+    void close() {
+        if (subscriber != null) {
+            subscriber.unsubscribe().subscribe().with(v -> {
+            }, cause -> {
+            });
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package io.archer.dba.cache;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The coupons left of an activity on this node, split over stripes of atomic counters.
+ * <p>
+ * A take starts at the stripe of its segment and moves on to the next stripes while they are empty, so the takes
+ * of different segments rarely meet on the same counter, and the amount only runs out when every stripe is empty.
+ * The counters are a cache line apart.
+ */
+class StripedStock {
+    // the longs in a cache line of 64 bytes.
+    private static final int SPACING = 8;
+
+    private final int stripes;
+    private final AtomicLongArray counts;
+
+    StripedStock(long amount, int stripes) {
+        this.stripes = stripes;
+        this.counts = new AtomicLongArray(stripes * SPACING);
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            counts.set(stripe * SPACING, amount / stripes + (stripe < amount % stripes ? 1 : 0));
+        }
+    }
+
+    /**
+     * @return false if the amount has run out.
+     */
+    public boolean tryTake(int stripe) {
+        for (int i = 0; i < stripes; i++) {
+            int index = (stripe + i) % stripes * SPACING;
+            for (long count = counts.get(index); count > 0; count = counts.get(index)) {
+                if (counts.compareAndSet(index, count, count - 1)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    public void giveBack(int stripe) {
+        counts.incrementAndGet(stripe % stripes * SPACING);
+    }
+
+    public long remaining() {
+        long total = 0;
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            total += counts.get(stripe * SPACING);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,73 @@
+package io.archer.dba.sql;
+
+import io.archer.model.Activity;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+@ApplicationScoped
+public class ActivityFacade {
+    @Inject
+    DataSource dataSource;
+
+    public List<Activity> findAll() throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "SELECT id, reserving_time, reserving_duration, issuing_time, issuing_duration, amount, percentage FROM activity"
+             );
+             ResultSet result = statement.executeQuery()) {
+            List<Activity> activities = new ArrayList<>();
+            while (result.next()) {
+                activities.add(new Activity()
+                        .setId(result.getString("id"))
+                        .setReservingTime(result.getObject("reserving_time", OffsetDateTime.class).toInstant())
+                        .setReservingDuration(Duration.parse(result.getString("reserving_duration")))
+                        .setIssuingTime(result.getObject("issuing_time", OffsetDateTime.class).toInstant())
+                        .setIssuingDuration(Duration.parse(result.getString("issuing_duration")))
+                        .setAmount(result.getObject("amount", Integer.class))
+                        .setPercentage(result.getObject("percentage", Integer.class)));
+            }
+            return activities;
+        }
+    }
+
+    /**
+     * Adds an activity, or replaces the one with the same id.
+     */
+    public void save(Activity activity) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement delete = connection.prepareStatement("DELETE FROM activity WHERE id = ?");
+                 PreparedStatement insert = connection.prepareStatement(
+                         "INSERT INTO activity (id, reserving_time, reserving_duration, issuing_time, issuing_duration, amount, percentage) "
+                                 + "VALUES (?, ?, ?, ?, ?, ?, ?)"
+                 )) {
+                delete.setString(1, activity.getId());
+                delete.executeUpdate();
+                insert.setString(1, activity.getId());
+                insert.setObject(2, activity.getReservingTime().atOffset(ZoneOffset.UTC));
+                insert.setString(3, activity.getReservingDuration().toString());
+                insert.setObject(4, activity.getIssuingTime().atOffset(ZoneOffset.UTC));
+                insert.setString(5, activity.getIssuingDuration().toString());
+                insert.setObject(6, activity.getAmount(), Types.INTEGER);
+                insert.setObject(7, activity.getPercentage(), Types.INTEGER);
+                insert.executeUpdate();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+    }
+}
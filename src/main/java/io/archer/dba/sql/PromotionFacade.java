@@ -1,7 +1,12 @@
 package io.archer.dba.sql;
 
+import io.archer.PromotionMetrics;
+import io.archer.PromotionOptions;
 import io.archer.model.Promotion;
 import io.archer.queue.IssuedPromotionQueue;
+import io.archer.queue.PromotionBatch;
+import io.archer.queue.PromotionJournal;
+import io.archer.queue.PromotionQueue;
 import io.archer.queue.ReservedPromotionQueue;
 import io.quarkus.logging.Log;
 import io.quarkus.runtime.StartupEvent;
@@ -10,7 +15,18 @@ import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.enterprise.event.Observes;
 import jakarta.inject.Inject;
 
-import java.time.format.DateTimeFormatter;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 
 @ApplicationScoped
@@ -19,58 +35,223 @@ public class PromotionFacade {
     @VirtualThreads
     ExecutorService vThreads;
 
+    @Inject
+    DataSource dataSource;
+
+    @Inject
+    PromotionOptions options;
+
+    @Inject
+    PromotionJournal journal;
+
+    @Inject
+    PromotionMetrics metrics;
+
     @Inject
     IssuedPromotionQueue issuedQueue;
 
     @Inject
     ReservedPromotionQueue reservedQueue;
 
+    @FunctionalInterface
+    private interface BatchWriter {
+        void write(Connection connection, List<Promotion> promotions) throws SQLException;
+    }
+
     void onEvent(@Observes StartupEvent event) {
         vThreads.execute(() -> {
-            while (true){
-                try {
-                    Promotion promotion = reservedQueue.take();
-                    if (promotion != null)
-                        this.saveReservation(promotion);
-                } catch (InterruptedException e) {
-                    Log.error("Failed to take the promotion from the reserved queue.", e);
+            // save what the previous run left in the journal before taking new promotions.
+            journal.replay(options.queue().batchSize(), (type, promotions) ->
+                    type == PromotionJournal.Type.RESERVED ? saveReservations(promotions) : saveIssuances(promotions)
+            );
+            vThreads.execute(() -> this.consume(reservedQueue));
+            vThreads.execute(() -> this.consume(issuedQueue));
+            Log.info("PromotionFacade is ready.");
+        });
+    }
+
+    private void consume(PromotionQueue queue) {
+        while (true) {
+            try {
+                PromotionBatch batch = queue.takeBatch();
+                boolean saved = queue.getType() == PromotionJournal.Type.RESERVED
+                        ? this.saveReservations(batch.promotions())
+                        : this.saveIssuances(batch.promotions());
+                if (saved) {
+                    batch.acknowledge();
                 }
+            } catch (InterruptedException e) {
+                Log.info("Stop taking promotions from the " + queue.getName() + " queue.");
+                return;
             }
-        });
-        vThreads.execute(() -> {
-            while (true) {
-                try {
-                    Promotion promotion = issuedQueue.take();
-                    if (promotion != null)
-                        this.saveIssuance(promotion);
-                } catch (InterruptedException e) {
-                    Log.error("Failed to take the promotion from the issued queue.", e);
+        }
+    }
+
+    public boolean saveReservation(Promotion promotion) {
+        return saveReservations(List.of(promotion));
+    }
+
+    public boolean saveIssuance(Promotion promotion) {
+        return saveIssuances(List.of(promotion));
+    }
+
+    /**
+     * Saves the reservations in one transaction, a reservation which has been saved is skipped.
+     *
+     * @return false if the batch still fails after all retries, a row which fails on its own is logged and skipped.
+     */
+    public boolean saveReservations(List<Promotion> promotions) {
+        return execute("reservations", promotions, this::insert);
+    }
+
+    /**
+     * Saves the issued coupons in one transaction.
+     * A reservation which has not been saved yet, since the queues are taken independently, is saved with its coupon.
+     *
+     * @return false if the batch still fails after all retries, a row which fails on its own is logged and skipped.
+     */
+    public boolean saveIssuances(List<Promotion> promotions) {
+        return execute("issuances", promotions, this::update);
+    }
+
+    private boolean execute(String name, List<Promotion> promotions, BatchWriter writer) {
+        if (promotions.isEmpty()) {
+            return true;
+        }
+        long start = System.nanoTime();
+        boolean saved = write(name, promotions, writer);
+        metrics.persisted(name, promotions.size(), System.nanoTime() - start, saved);
+        return saved;
+    }
+
+    private boolean write(String name, List<Promotion> promotions, BatchWriter writer) {
+        PromotionOptions.Persistence persistence = options.persistence();
+        for (int attempt = 0; ; attempt++) {
+            try {
+                writeOnce(promotions, writer);
+                return true;
+            } catch (SQLException e) {
+                if (attempt >= persistence.retries()) {
+                    Log.error("Failed to save " + promotions.size() + " " + name + ".", e);
+                    // a row which can never be saved fails every retry, save the other rows without it.
+                    return !isUnavailable(e) && bisect(name, promotions, writer, e);
                 }
+                Log.warn("Failed to save " + promotions.size() + " " + name + ", retry " + (attempt + 1) + ": " + e.getMessage());
             }
-        });
-        Log.info("PromotionFacade is ready.");
+            try {
+                Thread.sleep(persistence.retryBackoff().toMillis() << attempt);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                Log.error("Interrupted before saving " + promotions.size() + " " + name + ".");
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Saves the halves of a batch which has failed, once each, down to the rows which fail on their own, which are
+     * logged and skipped.
+     *
+     * @return false if the database becomes unavailable, the batch is kept to be saved again.
+     */
+    private boolean bisect(String name, List<Promotion> promotions, BatchWriter writer, SQLException cause) {
+        if (promotions.size() == 1) {
+            Log.error("Skipped the " + name + " of " + promotions.get(0).getId() + ": " + cause.getMessage());
+            return true;
+        }
+        int middle = promotions.size() / 2;
+        List<List<Promotion>> halves = List.of(
+                promotions.subList(0, middle),
+                promotions.subList(middle, promotions.size())
+        );
+        for (List<Promotion> half : halves) {
+            try {
+                writeOnce(half, writer);
+            } catch (SQLException e) {
+                if (isUnavailable(e) || !bisect(name, half, writer, e)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private void writeOnce(List<Promotion> promotions, BatchWriter writer) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                writer.write(connection, promotions);
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+    }
+
+    // a failure of the connection rather than of the rows, which another attempt may not have.
+    private static boolean isUnavailable(SQLException e) {
+        return e instanceof SQLTransientException
+                || e instanceof SQLRecoverableException
+                || e.getSQLState() != null && e.getSQLState().startsWith("08");
     }
 
-    public void saveReservation(Promotion promotion) {
-        // SQL statement for saving the reservation
-        StringBuilder statement = new StringBuilder()
-                .append("INSERT INTO promotion (id, user, activity, reservedTime) ")
-                .append("VALUES (")
-                .append("UUID(), ")
-                .append("'" + promotion.getUser() + "',")
-                .append("'" + promotion.getActivity() + "',")
-                .append("TIMESTAMP('" + DateTimeFormatter.ISO_INSTANT.format(promotion.getReservedTime()) + "')")
-                .append(")");
-        Log.info("execute SQL: " + statement.toString());
+    private void insert(Connection connection, List<Promotion> promotions) throws SQLException {
+        int rows = options.persistence().rowsPerStatement();
+        for (int from = 0; from < promotions.size(); from += rows) {
+            List<Promotion> chunk = promotions.subList(from, Math.min(from + rows, promotions.size()));
+            StringBuilder sql = new StringBuilder(
+                    "INSERT INTO promotion (id, user_id, activity_id, reserved_time, coupon, issued_time) VALUES "
+            );
+            for (int i = 0; i < chunk.size(); i++) {
+                sql.append(i == 0 ? "(?, ?, ?, ?, ?, ?)" : ", (?, ?, ?, ?, ?, ?)");
+            }
+            sql.append(" ON CONFLICT DO NOTHING");
+            try (PreparedStatement statement = connection.prepareStatement(sql.toString())) {
+                int index = 1;
+                for (Promotion promotion : chunk) {
+                    statement.setObject(index++, promotion.getId());
+                    statement.setString(index++, promotion.getUser());
+                    statement.setString(index++, promotion.getActivity());
+                    setTimestamp(statement, index++, promotion.getReservedTime());
+                    statement.setString(index++, promotion.getCode());
+                    setTimestamp(statement, index++, promotion.getIssuedTime());
+                }
+                statement.executeUpdate();
+            }
+        }
+    }
+
+    private void update(Connection connection, List<Promotion> promotions) throws SQLException {
+        int[] counts;
+        try (PreparedStatement statement = connection.prepareStatement(
+                "UPDATE promotion SET coupon = ?, issued_time = ? WHERE id = ?"
+        )) {
+            for (Promotion promotion : promotions) {
+                statement.setString(1, promotion.getCode());
+                setTimestamp(statement, 2, promotion.getIssuedTime());
+                statement.setObject(3, promotion.getId());
+                statement.addBatch();
+            }
+            counts = statement.executeBatch();
+        }
+        // a driver may not count the rows of a batch, the rows not known to be updated are inserted if they are missing.
+        List<Promotion> missing = new ArrayList<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0 || counts[i] == Statement.SUCCESS_NO_INFO) {
+                missing.add(promotions.get(i));
+            }
+        }
+        if (!missing.isEmpty()) {
+            insert(connection, missing);
+        }
     }
 
-    public void saveIssuance(Promotion promotion) {
-        // SQL statement for saving the issuance
-        StringBuilder statement = new StringBuilder()
-                .append("UPDATE promotion SET ")
-                .append("coupon = " + promotion.getCode() + ", ")
-                .append("issuedTime = TIMESTAMP('" + DateTimeFormatter.ISO_INSTANT.format(promotion.getIssuedTime()) + "') ")
-                .append("WHERE id =" + promotion.getId());
-        Log.info("execute SQL: " + statement.toString());
+    private static void setTimestamp(PreparedStatement statement, int index, Instant instant) throws SQLException {
+        if (instant == null) {
+            statement.setNull(index, Types.TIMESTAMP_WITH_TIMEZONE);
+        } else {
+            statement.setObject(index, instant.atOffset(ZoneOffset.UTC));
+        }
     }
 }
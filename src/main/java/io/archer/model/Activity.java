@@ -1,18 +1,81 @@
 package io.archer.model;
 
+import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.experimental.Accessors;
 
-import java.sql.Timestamp;
-import java.util.UUID;
+import java.time.Duration;
+import java.time.Instant;
 
 @Accessors(chain = true)
 @Getter
 @Setter
+@EqualsAndHashCode
 public class Activity {
-    private UUID id;
-    private Timestamp startTime;
-    private String duration;
+    /**
+     * The phases of an activity in their order, an activity only moves forward.
+     */
+    public enum Phase {
+        // before the reservation opens.
+        PENDING,
+        RESERVING,
+        // the reservation has closed, the amount is not counted yet.
+        CLOSED,
+        // the amount is counted, before the issuing opens.
+        PREPARED,
+        ISSUING,
+        // the issuing has closed.
+        FINISHED
+    }
+
+    private String id;
+    private Instant reservingTime;
+    private Duration reservingDuration;
+    private Instant issuingTime;
+    private Duration issuingDuration;
+    // a fixed number of coupons, or
     private Integer amount;
+    // a percentage of the reservations.
+    private Integer percentage;
+    // the phase on this node, moved by the PromotionChecker, not a part of the definition.
+    @EqualsAndHashCode.Exclude
+    private volatile Phase phase;
+
+    public Instant getReservingEnd() {
+        return reservingTime.plus(reservingDuration);
+    }
+
+    public Instant getIssuingEnd() {
+        return issuingTime.plus(issuingDuration);
+    }
+
+    /**
+     * @return the phase by the times alone, an activity between its reservation and its issuing is CLOSED.
+     */
+    public Phase phaseAt(Instant now) {
+        if (now.isBefore(reservingTime)) {
+            return Phase.PENDING;
+        }
+        if (now.isBefore(getReservingEnd())) {
+            return Phase.RESERVING;
+        }
+        if (now.isBefore(issuingTime)) {
+            return Phase.CLOSED;
+        }
+        if (now.isBefore(getIssuingEnd())) {
+            return Phase.ISSUING;
+        }
+        return Phase.FINISHED;
+    }
+
+    /**
+     * @return the number of coupons to issue for the reservations.
+     */
+    public long amountOf(long reservations) {
+        if (amount != null) {
+            return amount;
+        }
+        return Math.round(reservations * percentage / 100.0);
+    }
 }
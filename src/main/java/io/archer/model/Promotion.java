@@ -35,6 +35,9 @@ public class Promotion {
         }
     }
 
+    // the longest user or activity id, the size of their columns in the promotion table.
+    public static final int MAX_ID_LENGTH = 64;
+
     private UUID id;
     private String user;
     private String activity;
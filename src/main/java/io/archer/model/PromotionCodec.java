@@ -0,0 +1,98 @@
+package io.archer.model;
+
+import io.vertx.core.json.Json;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.UUID;
+
+/**
+ * A fixed-layout binary form of {@link Promotion}, the user and the activity are left to the key which holds it.
+ * <pre>
+ * offset  size  field
+ *      0     1  version, always 1, a JSON object starts with '{' instead
+ *      1     1  flags, bit 0 is set when the coupon is issued
+ *      2    16  id, most and least significant bits
+ *     18     8  reserved time in epoch millis
+ *     26     8  issued time in epoch millis, 0 when not issued
+ *     34     8  code in ASCII, padded with zeros
+ * </pre>
+ * The server-side scripts rely on the offsets of flags, issued time and code, keep them in sync.
+ */
+public final class PromotionCodec {
+    public static final int LENGTH = 42;
+
+    private static final byte VERSION = 1;
+    private static final byte ISSUED = 1;
+    private static final int CODE_LENGTH = 8;
+
+    private PromotionCodec() {
+    }
+
+    public static byte[] encode(Promotion promotion) {
+        byte[] value = new byte[LENGTH];
+        encode(promotion, ByteBuffer.wrap(value));
+        return value;
+    }
+
+    public static void encode(Promotion promotion, ByteBuffer buffer) {
+        boolean issued = promotion.getIssuedTime() != null;
+        buffer.put(VERSION);
+        buffer.put(issued ? ISSUED : 0);
+        buffer.putLong(promotion.getId().getMostSignificantBits());
+        buffer.putLong(promotion.getId().getLeastSignificantBits());
+        buffer.putLong(promotion.getReservedTime() == null ? 0 : promotion.getReservedTime().toEpochMilli());
+        buffer.putLong(issued ? promotion.getIssuedTime().toEpochMilli() : 0);
+        String code = promotion.getCode();
+        if (code != null && code.length() > CODE_LENGTH) {
+            throw new IllegalArgumentException("the code is longer than " + CODE_LENGTH + " characters: " + code);
+        }
+        for (int i = 0; i < CODE_LENGTH; i++) {
+            buffer.put(code != null && i < code.length() ? (byte) code.charAt(i) : 0);
+        }
+    }
+
+    /**
+     * Decodes the binary form, or the JSON form written before the binary one.
+     */
+    public static Promotion decode(byte[] value, String activityId, String userId) {
+        if (value == null || value.length == 0) {
+            return null;
+        }
+        if (value[0] == '{') {
+            //noinspection unchecked
+            return Promotion.valueOf(Json.decodeValue(new String(value, StandardCharsets.UTF_8), HashMap.class));
+        }
+        return decode(ByteBuffer.wrap(value))
+                .setActivity(activityId)
+                .setUser(userId);
+    }
+
+    public static Promotion decode(ByteBuffer buffer) {
+        byte version = buffer.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("unknown promotion version: " + version);
+        }
+        boolean issued = (buffer.get() & ISSUED) != 0;
+        Promotion promotion = new Promotion()
+                .setId(new UUID(buffer.getLong(), buffer.getLong()));
+        long reservedTime = buffer.getLong();
+        if (reservedTime != 0) {
+            promotion.setReservedTime(Instant.ofEpochMilli(reservedTime));
+        }
+        long issuedTime = buffer.getLong();
+        byte[] code = new byte[CODE_LENGTH];
+        buffer.get(code);
+        if (issued) {
+            int length = 0;
+            while (length < CODE_LENGTH && code[length] != 0) {
+                length++;
+            }
+            promotion.setIssuedTime(Instant.ofEpochMilli(issuedTime))
+                    .setCode(new String(code, 0, length, StandardCharsets.US_ASCII));
+        }
+        return promotion;
+    }
+}
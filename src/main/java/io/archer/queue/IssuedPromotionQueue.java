@@ -1,19 +1,13 @@
 package io.archer.queue;
 
-import io.archer.model.Promotion;
-import jakarta.enterprise.context.ApplicationScoped;
-
-import java.util.concurrent.SynchronousQueue;
-
-@ApplicationScoped
-public class IssuedPromotionQueue {
-    private SynchronousQueue<Promotion> queue = new SynchronousQueue<>();
-
-    public void offer(Promotion promotion) {
-        queue.offer(promotion);
-    }
-
-    public Promotion take() throws InterruptedException {
-        return queue.take();
+import io.archer.PromotionOptions;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+
+@Singleton
+public class IssuedPromotionQueue extends PromotionQueue {
+    @Inject
+    public IssuedPromotionQueue(PromotionOptions options, PromotionJournal journal) {
+        super("issued", PromotionJournal.Type.ISSUED, options.queue(), journal);
     }
 }
@@ -0,0 +1,33 @@
+package io.archer.queue;
+
+import io.archer.model.Promotion;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Promotions taken from a queue at once, to be acknowledged when they are saved.
+ */
+public class PromotionBatch {
+    private final List<Promotion> promotions;
+    // the number of promotions in the batch by journal segment
+    private final Map<Long, Integer> segments;
+    private final PromotionJournal journal;
+
+    PromotionBatch(List<Promotion> promotions, Map<Long, Integer> segments, PromotionJournal journal) {
+        this.promotions = promotions;
+        this.segments = segments;
+        this.journal = journal;
+    }
+
+    public List<Promotion> promotions() {
+        return promotions;
+    }
+
+    /**
+     * Tells the journal the promotions are saved, so they are not replayed on the next startup.
+     */
+    public void acknowledge() {
+        segments.forEach(journal::acknowledge);
+    }
+}
@@ -0,0 +1,316 @@
+package io.archer.queue;
+
+import io.archer.PromotionOptions;
+import io.archer.model.Promotion;
+import io.archer.model.PromotionCodec;
+import io.quarkus.logging.Log;
+import jakarta.annotation.PreDestroy;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * An append-only write-ahead log of the queued promotions.
+ * <p>
+ * Promotions are appended to memory-mapped segment files before they are queued, and a flusher
+ * fsyncs the active segment every {@code flushInterval}, so the appends in between share one fsync
+ * and the request path never waits for the disk. A segment is deleted once every promotion in it has
+ * been saved. The segments left by a previous run are replayed into the database on startup.
+ * <p>
+ * Record: length (int), CRC32C of the body (int), then the body:
+ * type (byte), the promotion in the {@link PromotionCodec} layout, user and activity (short length + UTF-8 each).
+ * A zero length marks the end of a segment.
+ */
+@Singleton
+public class PromotionJournal {
+    public enum Type {
+        RESERVED, ISSUED
+    }
+
+    @FunctionalInterface
+    public interface Replayer {
+        /**
+         * @return false if the promotions can't be saved, the segment is kept for the next run.
+         */
+        boolean replay(Type type, List<Promotion> promotions);
+    }
+
+    private static class Segment {
+        private final long index;
+        private final Path path;
+        private final MappedByteBuffer buffer;
+        private final AtomicInteger pending = new AtomicInteger();
+
+        private Segment(long index, Path path, MappedByteBuffer buffer) {
+            this.index = index;
+            this.path = path;
+            this.buffer = buffer;
+        }
+    }
+
+    // header: length, crc
+    private static final int HEADER = 8;
+    // type, promotion, user length, activity length
+    private static final int FIXED_BODY = 1 + PromotionCodec.LENGTH + 2 + 2;
+    // the longest id in UTF-8, up to 3 bytes a char.
+    private static final int MAX_ID_BYTES = Promotion.MAX_ID_LENGTH * 3;
+    // the largest record, with the zero length after it.
+    private static final int MAX_RECORD = HEADER + FIXED_BODY + MAX_ID_BYTES * 2 + 4;
+
+    private final boolean enabled;
+    private final Path directory;
+    private final int segmentSize;
+    private final List<Path> recovered = new ArrayList<>();
+    private final ConcurrentHashMap<Long, Segment> segments = new ConcurrentHashMap<>();
+    private ScheduledExecutorService flusher;
+    private volatile Segment active;
+    private volatile boolean dirty;
+
+    @Inject
+    public PromotionJournal(PromotionOptions options) {
+        this(options.journal());
+    }
+
+    public PromotionJournal(PromotionOptions.Journal options) {
+        this.enabled = options.enabled();
+        this.directory = Path.of(options.directory());
+        this.segmentSize = options.segmentSize();
+        if (segmentSize < MAX_RECORD) {
+            throw new IllegalArgumentException("the segment size must be at least " + MAX_RECORD + ": " + segmentSize);
+        }
+        if (!enabled) {
+            return;
+        }
+        try {
+            Files.createDirectories(directory);
+            long next = 0;
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path path : files.filter(PromotionJournal::isSegment).sorted().toList()) {
+                    recovered.add(path);
+                    next = Math.max(next, indexOf(path) + 1);
+                }
+            }
+            active = open(next);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        long interval = options.flushInterval().toNanos();
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "promotion-journal-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.NANOSECONDS);
+        Log.info("PromotionJournal is ready, " + recovered.size() + " segments to replay.");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Appends a promotion to the active segment.
+     *
+     * @return the segment to acknowledge once the promotion is saved, or -1 when the journal is disabled.
+     */
+    public long append(Type type, Promotion promotion) {
+        // the disabled journal is the default, its callers don't wait for the lock.
+        if (!enabled) {
+            return -1;
+        }
+        return appendLocked(type, promotion);
+    }
+
+    private synchronized long appendLocked(Type type, Promotion promotion) {
+        byte[] user = bytes(promotion.getUser());
+        byte[] activity = bytes(promotion.getActivity());
+        // the ids are checked by the API, a longer one would overflow its length or the segment.
+        if (user.length > MAX_ID_BYTES || activity.length > MAX_ID_BYTES) {
+            throw new IllegalArgumentException("the ids of promotion " + promotion.getId() + " are too long.");
+        }
+        int length = FIXED_BODY + user.length + activity.length;
+        // keep room for the zero length at the end of the segment.
+        if (active.buffer.remaining() < HEADER + length + 4) {
+            roll();
+        }
+        ByteBuffer buffer = active.buffer;
+        int start = buffer.position();
+        buffer.position(start + HEADER);
+        buffer.put((byte) type.ordinal());
+        PromotionCodec.encode(promotion, buffer);
+        buffer.putShort((short) user.length).put(user);
+        buffer.putShort((short) activity.length).put(activity);
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.duplicate().position(start + HEADER).limit(start + HEADER + length));
+        // the length is written last, a torn record reads as the end of the segment.
+        buffer.putInt(start + 4, (int) crc.getValue());
+        buffer.putInt(start, length);
+        active.pending.incrementAndGet();
+        dirty = true;
+        return active.index;
+    }
+
+    /**
+     * Marks promotions of a segment as saved, the segment is deleted once all of them are saved.
+     */
+    public void acknowledge(long index, int count) {
+        Segment segment = segments.get(index);
+        if (segment != null && segment.pending.addAndGet(-count) <= 0 && segment != active) {
+            delete(segment);
+        }
+    }
+
+    /**
+     * Replays the segments left by the previous run in batches, and deletes the segments which are saved.
+     */
+    public void replay(int batchSize, Replayer replayer) {
+        for (Path path : recovered) {
+            boolean saved = true;
+            int records = 0;
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                List<Promotion> batch = new ArrayList<>(batchSize);
+                Type batchType = null;
+                Promotion promotion;
+                Type[] type = new Type[1];
+                while ((promotion = read(buffer, type)) != null) {
+                    records++;
+                    if (batch.size() == batchSize || (batchType != null && batchType != type[0])) {
+                        saved &= replayer.replay(batchType, batch);
+                        batch = new ArrayList<>(batchSize);
+                    }
+                    batchType = type[0];
+                    batch.add(promotion);
+                }
+                if (!batch.isEmpty()) {
+                    saved &= replayer.replay(batchType, batch);
+                }
+            } catch (IOException e) {
+                Log.error("Failed to replay the journal segment " + path + ".", e);
+                continue;
+            }
+            if (saved) {
+                Log.info(records + " promotions are replayed from " + path + ".");
+                deleteQuietly(path);
+            } else {
+                Log.error("Failed to save the promotions replayed from " + path + ", keep it for the next run.");
+            }
+        }
+        recovered.clear();
+    }
+
+    private static Promotion read(ByteBuffer buffer, Type[] type) {
+        if (buffer.remaining() < HEADER) {
+            return null;
+        }
+        int start = buffer.position();
+        int length = buffer.getInt(start);
+        if (length < FIXED_BODY || buffer.remaining() < HEADER + length) {
+            return null;
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.duplicate().position(start + HEADER).limit(start + HEADER + length));
+        if ((int) crc.getValue() != buffer.getInt(start + 4)) {
+            Log.error("A broken record is found in the journal, the rest of the segment is skipped.");
+            return null;
+        }
+        buffer.position(start + HEADER);
+        type[0] = Type.values()[buffer.get()];
+        Promotion promotion = PromotionCodec.decode(buffer);
+        byte[] user = new byte[buffer.getShort()];
+        buffer.get(user);
+        byte[] activity = new byte[buffer.getShort()];
+        buffer.get(activity);
+        return promotion
+                .setUser(new String(user, StandardCharsets.UTF_8))
+                .setActivity(new String(activity, StandardCharsets.UTF_8));
+    }
+
+    private void flush() {
+        if (dirty) {
+            dirty = false;
+            active.buffer.force();
+        }
+    }
+
+    private void roll() {
+        Segment previous = active;
+        previous.buffer.force();
+        active = open(previous.index + 1);
+        if (previous.pending.get() <= 0) {
+            delete(previous);
+        }
+    }
+
+    private Segment open(long index) {
+        Path path = directory.resolve(String.format("segment-%020d.log", index));
+        try (FileChannel channel = FileChannel.open(
+                path,
+                StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ,
+                StandardOpenOption.WRITE
+        )) {
+            Segment segment = new Segment(index, path, channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize));
+            segments.put(index, segment);
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void delete(Segment segment) {
+        if (segments.remove(segment.index) != null) {
+            deleteQuietly(segment.path);
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            Log.error("Failed to delete the journal segment " + path + ".", e);
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        if (flusher != null) {
+            flusher.shutdown();
+            synchronized (this) {
+                active.buffer.force();
+            }
+        }
+    }
+
+    private static boolean isSegment(Path path) {
+        String name = path.getFileName().toString();
+        return name.startsWith("segment-") && name.endsWith(".log");
+    }
+
+    private static long indexOf(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring("segment-".length(), name.length() - ".log".length()));
+    }
+
+    private static byte[] bytes(String value) {
+        return value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+    }
+}
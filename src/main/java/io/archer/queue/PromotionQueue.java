@@ -0,0 +1,202 @@
+package io.archer.queue;
+
+import io.archer.PromotionOptions;
+import io.archer.model.Promotion;
+import io.quarkus.logging.Log;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded ring buffer between the request path and the database writer.
+ * <p>
+ * Promotions are taken in batches, a batch is handed out when it is full or when
+ * {@code linger} has passed since its first promotion, whichever comes first.
+ * When the buffer is full, the {@link PromotionOptions.Queue.Overflow} policy decides what is dropped.
+ * <p>
+ * Every promotion is appended to the {@link PromotionJournal} before it is queued, even when it is dropped,
+ * so a dropped or unsaved promotion is still replayed on the next startup.
+ */
+public abstract class PromotionQueue {
+    private record Entry(Promotion promotion, long offeredAt, long segment) {
+    }
+
+    // a full queue drops on every offer, log the drops once a second at most.
+    private static final long DROP_LOG_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+
+    private final String name;
+    private final PromotionJournal.Type type;
+    private final PromotionJournal journal;
+    private final ArrayBlockingQueue<Entry> queue;
+    private final int batchSize;
+    private final long linger;
+    private final PromotionOptions.Queue.Overflow overflow;
+    private final long offerTimeout;
+
+    private final LongAdder offered = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder taken = new LongAdder();
+    private final LongAdder totalLatency = new LongAdder();
+    private final LongAccumulator maxLatency = new LongAccumulator(Math::max, 0);
+    private final AtomicLong lastDropLog = new AtomicLong(System.nanoTime() - DROP_LOG_INTERVAL);
+    private volatile long loggedDrops;
+
+    protected PromotionQueue(
+            String name,
+            PromotionJournal.Type type,
+            PromotionOptions.Queue options,
+            PromotionJournal journal
+    ) {
+        this.name = name;
+        this.type = type;
+        this.journal = journal;
+        this.queue = new ArrayBlockingQueue<>(options.capacity());
+        this.batchSize = options.batchSize();
+        this.linger = options.linger().toNanos();
+        this.overflow = options.overflow();
+        this.offerTimeout = options.offerTimeout().toNanos();
+    }
+
+    /**
+     * @return true if an offer may wait for room, then it must not be made on an event loop.
+     */
+    public boolean blocks() {
+        return overflow == PromotionOptions.Queue.Overflow.BLOCK;
+    }
+
+    /**
+     * @return false if the promotion is refused by the overflow policy.
+     */
+    public boolean offer(Promotion promotion) {
+        Entry entry = new Entry(promotion, System.nanoTime(), journal.append(type, promotion));
+        boolean accepted = switch (overflow) {
+            case REJECT -> queue.offer(entry);
+            case DROP_OLDEST -> {
+                while (!queue.offer(entry)) {
+                    Entry oldest = queue.poll();
+                    if (oldest != null) {
+                        dropped(oldest.promotion());
+                    }
+                }
+                yield true;
+            }
+            case BLOCK -> {
+                try {
+                    yield queue.offer(entry, offerTimeout, TimeUnit.NANOSECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    yield false;
+                }
+            }
+        };
+        if (accepted) {
+            offered.increment();
+        } else {
+            dropped(promotion);
+        }
+        return accepted;
+    }
+
+    private void dropped(Promotion promotion) {
+        dropped.increment();
+        long now = System.nanoTime();
+        long last = lastDropLog.get();
+        if (now - last >= DROP_LOG_INTERVAL && lastDropLog.compareAndSet(last, now)) {
+            long drops = dropped.sum();
+            Log.error(
+                    "Promotion " + promotion.getId() + " is dropped from the " + name + " queue, "
+                            + (drops - loggedDrops) + " dropped since the last report."
+            );
+            loggedDrops = drops;
+        }
+    }
+
+    /**
+     * Waits for the next batch of promotions.
+     */
+    public PromotionBatch takeBatch() throws InterruptedException {
+        List<Entry> entries = new ArrayList<>(batchSize);
+        entries.add(queue.take());
+        long deadline = System.nanoTime() + linger;
+        while (entries.size() < batchSize) {
+            if (queue.drainTo(entries, batchSize - entries.size()) > 0) {
+                continue;
+            }
+            Entry entry = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            if (entry == null) {
+                break;
+            }
+            entries.add(entry);
+        }
+
+        long now = System.nanoTime();
+        List<Promotion> promotions = new ArrayList<>(entries.size());
+        Map<Long, Integer> segments = new HashMap<>();
+        for (Entry entry : entries) {
+            long latency = now - entry.offeredAt();
+            totalLatency.add(latency);
+            maxLatency.accumulate(latency);
+            promotions.add(entry.promotion());
+            if (entry.segment() >= 0) {
+                segments.merge(entry.segment(), 1, Integer::sum);
+            }
+        }
+        taken.add(entries.size());
+        return new PromotionBatch(promotions, segments, journal);
+    }
+
+    public PromotionJournal.Type getType() {
+        return type;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getCapacity() {
+        return queue.size() + queue.remainingCapacity();
+    }
+
+    public int getDepth() {
+        return queue.size();
+    }
+
+    public long getOffered() {
+        return offered.sum();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public long getTaken() {
+        return taken.sum();
+    }
+
+    /**
+     * @return the average time a promotion waits in the queue.
+     */
+    public Duration getAverageLatency() {
+        long count = taken.sum();
+        return Duration.ofNanos(count == 0 ? 0 : totalLatency.sum() / count);
+    }
+
+    /**
+     * @return the time all taken promotions have waited in the queue.
+     */
+    public Duration getTotalLatency() {
+        return Duration.ofNanos(totalLatency.sum());
+    }
+
+    public Duration getMaxLatency() {
+        return Duration.ofNanos(maxLatency.get());
+    }
+}
@@ -0,0 +1,186 @@
+package io.archer.schedule;
+
+import io.quarkus.logging.Log;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A hierarchical timing wheel run by one worker thread.
+ * <p>
+ * Level 0 has one bucket per tick, and every level above has buckets as wide as a whole turn of the level
+ * below, so {@code levels} wheels of {@code wheelSize} buckets cover {@code tick * wheelSize ^ levels}.
+ * A bucket of an upper level is moved down when the wheel below it turns over, and timeouts further than
+ * the top level are kept aside until the top level turns over.
+ * <p>
+ * Scheduling and cancelling never lock, a new timeout is put in a lock-free queue and taken into the buckets
+ * by the worker on the next tick. Tasks run on the worker thread, a task which blocks or takes long should
+ * hand its work to another thread.
+ */
+public class TimingWheel implements AutoCloseable {
+    public interface Timeout {
+        /**
+         * @return false if the task has run or has been cancelled.
+         */
+        boolean cancel();
+    }
+
+    private static final int PENDING = 0;
+    private static final int CANCELLED = 1;
+    private static final int EXPIRED = 2;
+
+    private static class Entry implements Timeout {
+        private final long deadline;
+        private final Runnable task;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+
+        private Entry(long deadline, Runnable task) {
+            this.deadline = deadline;
+            this.task = task;
+        }
+
+        @Override
+        public boolean cancel() {
+            return state.compareAndSet(PENDING, CANCELLED);
+        }
+    }
+
+    private final String name;
+    private final long tick;
+    private final int bits;
+    private final int mask;
+    private final ArrayDeque<Entry>[][] levels;
+    private final List<Entry> beyond = new ArrayList<>();
+    private final ConcurrentLinkedQueue<Entry> incoming = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final long start = System.nanoTime();
+    private final Thread worker;
+    // the last tick processed, only touched by the worker.
+    private long current;
+    private volatile boolean closed;
+
+    @SuppressWarnings("unchecked")
+    public TimingWheel(String name, Duration tick, int wheelSize, int levels) {
+        if (Integer.bitCount(wheelSize) != 1 || wheelSize < 2) {
+            throw new IllegalArgumentException("the wheel size must be a power of 2: " + wheelSize);
+        }
+        if (levels < 1 || Integer.numberOfTrailingZeros(wheelSize) * levels > 62) {
+            throw new IllegalArgumentException("unsupported levels: " + levels);
+        }
+        this.name = name;
+        this.tick = tick.toNanos();
+        this.bits = Integer.numberOfTrailingZeros(wheelSize);
+        this.mask = wheelSize - 1;
+        this.levels = new ArrayDeque[levels][wheelSize];
+        for (ArrayDeque<Entry>[] level : this.levels) {
+            for (int i = 0; i < wheelSize; i++) {
+                level[i] = new ArrayDeque<>();
+            }
+        }
+        this.worker = new Thread(this::run, name);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        if (closed) {
+            throw new IllegalStateException(name + " is closed.");
+        }
+        long elapsed = System.nanoTime() - start + Math.max(unit.toNanos(delay), 0);
+        // round up, a task never runs before its delay.
+        Entry entry = new Entry((elapsed + tick - 1) / tick, task);
+        pending.incrementAndGet();
+        incoming.offer(entry);
+        return entry;
+    }
+
+    /**
+     * @return the number of scheduled tasks which have not run, including the cancelled ones not yet removed.
+     */
+    public int getPending() {
+        return pending.get();
+    }
+
+    private void run() {
+        while (!closed) {
+            long wait = start + (current + 1) * tick - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(this, wait);
+                continue;
+            }
+            current++;
+            Entry entry;
+            while ((entry = incoming.poll()) != null) {
+                place(entry);
+            }
+            // the timeouts further than the top level are placed again when the top level turns over,
+            // which is every turn of level 0 for a wheel of one level.
+            if ((current & ((1L << (bits * levels.length)) - 1)) == 0) {
+                List<Entry> far = new ArrayList<>(beyond);
+                beyond.clear();
+                far.forEach(this::place);
+            }
+            // move the buckets of the upper levels down, from the top, when the levels below them turn over.
+            for (int level = levels.length - 1; level > 0; level--) {
+                if ((current & ((1L << (bits * level)) - 1)) == 0) {
+                    cascade(levels[level][(int) ((current >> (bits * level)) & mask)]);
+                }
+            }
+            ArrayDeque<Entry> bucket = levels[0][(int) (current & mask)];
+            while ((entry = bucket.poll()) != null) {
+                expire(entry);
+            }
+        }
+    }
+
+    private void cascade(ArrayDeque<Entry> bucket) {
+        Entry entry;
+        int size = bucket.size();
+        for (int i = 0; i < size && (entry = bucket.poll()) != null; i++) {
+            place(entry);
+        }
+    }
+
+    private void place(Entry entry) {
+        if (entry.state.get() != PENDING) {
+            pending.decrementAndGet();
+            return;
+        }
+        if (entry.deadline <= current) {
+            expire(entry);
+            return;
+        }
+        // the lowest level whose upper digits are the same as the current tick.
+        for (int level = 0; level < levels.length; level++) {
+            int shift = bits * (level + 1);
+            if ((entry.deadline >> shift) == (current >> shift)) {
+                levels[level][(int) ((entry.deadline >> (bits * level)) & mask)].add(entry);
+                return;
+            }
+        }
+        beyond.add(entry);
+    }
+
+    private void expire(Entry entry) {
+        pending.decrementAndGet();
+        if (entry.state.compareAndSet(PENDING, EXPIRED)) {
+            try {
+                entry.task.run();
+            } catch (RuntimeException e) {
+                Log.error("A task of " + name + " failed.", e);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(worker);
+    }
+}
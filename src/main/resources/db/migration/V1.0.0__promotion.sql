@@ -0,0 +1,18 @@
+CREATE TABLE promotion
+(
+    id            UUID PRIMARY KEY,
+    user_id       VARCHAR(64)              NOT NULL,
+    activity_id   VARCHAR(64)              NOT NULL,
+    reserved_time TIMESTAMP WITH TIME ZONE NOT NULL,
+    coupon        VARCHAR(16),
+    issued_time   TIMESTAMP WITH TIME ZONE
+);
+
+-- a user reserves an activity once
+CREATE UNIQUE INDEX promotion_activity_user_idx ON promotion (activity_id, user_id);
+
+-- a coupon is issued once in an activity, and can be looked up by its code
+CREATE UNIQUE INDEX promotion_activity_coupon_idx ON promotion (activity_id, coupon);
+
+-- the issued records of an activity, in issued order
+CREATE INDEX promotion_activity_issued_time_idx ON promotion (activity_id, issued_time);
@@ -0,0 +1,12 @@
+CREATE TABLE activity
+(
+    id                 VARCHAR(64) PRIMARY KEY,
+    reserving_time     TIMESTAMP WITH TIME ZONE NOT NULL,
+    reserving_duration VARCHAR(32)              NOT NULL,
+    issuing_time       TIMESTAMP WITH TIME ZONE NOT NULL,
+    issuing_duration   VARCHAR(32)              NOT NULL,
+    -- a fixed number of coupons, or a percentage of the reservations
+    amount             INTEGER,
+    percentage         INTEGER,
+    CHECK ((amount IS NULL) <> (percentage IS NULL))
+);
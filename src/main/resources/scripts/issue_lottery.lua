@@ -0,0 +1,57 @@
+-- Issue a coupon to a user drawn in the lottery in one atomic step.
+--
+-- KEYS[1]: reservation hash, promotion:<activity>, or promotion:{<activity>:<shard>} when sharded
+-- KEYS[2]: drawn users, promotion:winner:<activity>, of the same shard
+-- KEYS[3]: drawn users left, promotion:amount:<activity>, of the same shard, set once the lottery is drawn
+-- ARGV[1]: user id
+-- ARGV[2]: coupon code
+-- ARGV[3]: issued time in epoch millis
+-- ARGV[4]: issued time in ISO-8601, for a promotion still stored as JSON
+--
+-- a promotion is stored in the layout of io.archer.model.PromotionCodec, or as JSON before it.
+--
+-- returns {1, promotion} when issued, otherwise {status} with
+--   -1 no reservation, -2 duplicated issue, -3 not drawn yet, -5 not drawn in the lottery.
+local function int64(n)
+    local bytes = {}
+    for i = 8, 1, -1 do
+        bytes[i] = string.char(n % 256)
+        n = math.floor(n / 256)
+    end
+    return table.concat(bytes)
+end
+
+if redis.call('SISMEMBER', KEYS[2], ARGV[1]) == 0 then
+    if redis.call('EXISTS', KEYS[3]) == 0 then
+        return {-3}
+    end
+    if redis.call('HEXISTS', KEYS[1], ARGV[1]) == 0 then
+        return {-1}
+    end
+    return {-5}
+end
+local value = redis.call('HGET', KEYS[1], ARGV[1])
+if not value then
+    return {-1}
+end
+local promotion
+if string.sub(value, 1, 1) == '{' then
+    promotion = cjson.decode(value)
+    if promotion['issuedTime'] then
+        return {-2}
+    end
+elseif string.byte(value, 2) % 2 == 1 then
+    return {-2}
+end
+redis.call('DECR', KEYS[3])
+if promotion then
+    promotion['code'] = ARGV[2]
+    promotion['issuedTime'] = ARGV[4]
+    value = cjson.encode(promotion)
+else
+    -- set the issued flag, then replace the issued time and the code.
+    value = string.sub(value, 1, 1) .. string.char(string.byte(value, 2) + 1) .. string.sub(value, 3, 26)
+            .. int64(tonumber(ARGV[3])) .. string.sub(ARGV[2] .. string.rep('\0', 8), 1, 8)
+end
+redis.call('HSET', KEYS[1], ARGV[1], value)
+return {1, value}
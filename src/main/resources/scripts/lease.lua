@@ -0,0 +1,16 @@
+-- Lease a block of coupons from the promotion amount for a node.
+--
+-- KEYS[1]: promotion amount, promotion:amount:<activity>
+-- ARGV[1]: block size
+--
+-- returns the number of leased coupons, 0 when ran out, -1 when there is no amount.
+local amount = tonumber(redis.call('GET', KEYS[1]))
+if not amount then
+    return -1
+end
+local granted = math.min(amount, tonumber(ARGV[1]))
+if granted <= 0 then
+    return 0
+end
+redis.call('DECRBY', KEYS[1], granted)
+return granted
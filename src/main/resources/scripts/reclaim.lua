@@ -0,0 +1,29 @@
+-- Remove a reservation and give its coupon back to the amount in one atomic step.
+--
+-- KEYS[1]: reservation hash, promotion:<activity>, or promotion:{<activity>:<shard>} when sharded
+-- KEYS[2]: promotion amount, promotion:amount:<activity>, left out when the amount is in another slot
+-- ARGV[1]: user id
+--
+-- a promotion is stored in the layout of io.archer.model.PromotionCodec, or as JSON before it.
+--
+-- returns 1 when an issued coupon is given back, or is to be given back by the caller without KEYS[2],
+--   0 when only the reservation is removed, -1 when there is no reservation.
+local value = redis.call('HGET', KEYS[1], ARGV[1])
+if not value then
+    return -1
+end
+redis.call('HDEL', KEYS[1], ARGV[1])
+local issued
+if string.sub(value, 1, 1) == '{' then
+    issued = cjson.decode(value)['issuedTime'] ~= nil
+else
+    issued = string.byte(value, 2) % 2 == 1
+end
+if issued and not KEYS[2] then
+    return 1
+end
+if issued and redis.call('EXISTS', KEYS[2]) == 1 then
+    redis.call('INCR', KEYS[2])
+    return 1
+end
+return 0
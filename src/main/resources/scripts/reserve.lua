@@ -0,0 +1,13 @@
+-- Reserve a promotion for a user in one atomic step, or return the reservation the user already has.
+--
+-- KEYS[1]: reservation hash, promotion:<activity>, or promotion:{<activity>:<shard>} when sharded
+-- ARGV[1]: user id
+-- ARGV[2]: the new reservation, in the layout of io.archer.model.PromotionCodec
+--
+-- returns {1} when reserved, otherwise {0, promotion} with the promotion already stored for the user.
+local value = redis.call('HGET', KEYS[1], ARGV[1])
+if value then
+    return {0, value}
+end
+redis.call('HSET', KEYS[1], ARGV[1], ARGV[2])
+return {1}
@@ -0,0 +1,139 @@
+package io.archer;
+
+import io.archer.dba.sql.ActivityFacade;
+import io.archer.model.Activity;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.jupiter.api.Assertions.*;
+
+@QuarkusTest
+class ActivityRegistryTest {
+    @Inject
+    ActivityRegistry registry;
+
+    @Inject
+    ActivityFacade facade;
+
+    @Inject
+    DataSource dataSource;
+
+    private static Activity activity(String activityId, Instant reservingTime) {
+        return new Activity()
+                .setId(activityId)
+                .setReservingTime(reservingTime)
+                .setReservingDuration(Duration.ofMinutes(5))
+                .setIssuingTime(reservingTime.plus(Duration.ofMinutes(10)))
+                .setIssuingDuration(Duration.ofMinutes(1))
+                .setPercentage(20);
+    }
+
+    private void delete(String activityId) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("DELETE FROM activity WHERE id = ?")) {
+            statement.setString(1, activityId);
+            statement.executeUpdate();
+        }
+    }
+
+    private void reserve(String activityId, int status) {
+        given()
+                .contentType("application/json")
+                .body("{\"user\": \"user-0\"}")
+                .when().post("/activities/" + activityId + "/reserve")
+                .then()
+                .statusCode(status);
+    }
+
+    @Test
+    void testUnknownActivity() {
+        given()
+                .contentType("application/json")
+                .body("{\"user\": \"user-0\"}")
+                .when().post("/activities/unknown/issue")
+                .then()
+                .statusCode(404)
+                .body("message", is("The activity is not found."));
+    }
+
+    @Test
+    void testReload() throws SQLException {
+        String activityId = "test-" + UUID.randomUUID();
+        Instant now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        facade.save(activity(activityId, now.minusSeconds(60)));
+        assertNull(registry.get(activityId));
+        reserve(activityId, 404);
+
+        registry.reload();
+        assertEquals(activity(activityId, now.minusSeconds(60)), registry.get(activityId));
+        reserve(activityId, 200);
+
+        // the reservation is moved to tomorrow.
+        facade.save(activity(activityId, now.plus(Duration.ofDays(1))));
+        registry.reload();
+        reserve(activityId, 403);
+
+        delete(activityId);
+        registry.reload();
+        assertNull(registry.get(activityId));
+    }
+
+    @Test
+    void testPhases() throws SQLException, InterruptedException {
+        String activityId = "test-" + UUID.randomUUID();
+        Instant start = Instant.now().truncatedTo(ChronoUnit.SECONDS).plusSeconds(2);
+        facade.save(
+                new Activity()
+                        .setId(activityId)
+                        .setReservingTime(start)
+                        .setReservingDuration(Duration.ofSeconds(1))
+                        .setIssuingTime(start.plusSeconds(3))
+                        .setIssuingDuration(Duration.ofSeconds(1))
+                        .setPercentage(100)
+        );
+        registry.reload();
+        Activity activity = registry.get(activityId);
+        assertEquals(Activity.Phase.PENDING, activity.getPhase());
+        reserve(activityId, 403);
+
+        // the timers move the loaded activity, a reload keeps it while it is unchanged.
+        awaitPhase(activityId, Activity.Phase.RESERVING);
+        reserve(activityId, 200);
+        registry.reload();
+        assertSame(activity, registry.get(activityId));
+        awaitPhase(activityId, Activity.Phase.PREPARED);
+        reserve(activityId, 403);
+        awaitPhase(activityId, Activity.Phase.ISSUING);
+        awaitPhase(activityId, Activity.Phase.FINISHED);
+        delete(activityId);
+        registry.reload();
+    }
+
+    private void awaitPhase(String activityId, Activity.Phase phase) throws InterruptedException {
+        for (int i = 0; i < 50 && registry.get(activityId).getPhase().compareTo(phase) < 0; i++) {
+            Thread.sleep(100);
+        }
+        assertEquals(phase, registry.get(activityId).getPhase());
+    }
+
+    @Test
+    void testAmount() {
+        Activity activity = activity("test", Instant.now());
+        assertEquals(60, activity.amountOf(300));
+        assertEquals(6000, activity.amountOf(30000));
+        assertEquals(0, activity.amountOf(2));
+        assertEquals(100, activity.setPercentage(null).setAmount(100).amountOf(300));
+    }
+}
@@ -0,0 +1,109 @@
+package io.archer;
+
+import io.archer.model.Promotion;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@QuarkusTest
+@TestProfile(PromotionEventsTest.EventsProfile.class)
+class PromotionEventsTest {
+    @Inject
+    PromotionEvents events;
+
+    private final List<String> lines = new CopyOnWriteArrayList<>();
+
+    private final Handler handler = new Handler() {
+        @Override
+        public void publish(LogRecord record) {
+            String message = record.getMessage();
+            Object[] parameters = record.getParameters();
+            lines.add(parameters == null ? message : String.format(message, parameters));
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    @BeforeEach
+    void setUp() {
+        Logger.getLogger("io.archer.events").addHandler(handler);
+    }
+
+    @AfterEach
+    void tearDown() {
+        Logger.getLogger("io.archer.events").removeHandler(handler);
+    }
+
+    private List<String> linesOf(String activityId) {
+        return lines.stream().filter(line -> line.contains("activity=" + activityId + " ")).toList();
+    }
+
+    @Test
+    void testEvents() {
+        String activityId = "test-" + UUID.randomUUID();
+        Promotion promotion = new Promotion()
+                .setId(UUID.randomUUID())
+                .setActivity(activityId)
+                .setUser("user-0")
+                .setCode("ABCDEFGH");
+        events.reserved(promotion);
+        events.issued(promotion);
+        // only the first rejection of a reason is logged, the others are in the summary.
+        for (int i = 0; i < 10; i++) {
+            events.rejected(activityId, "user-" + i, "the promotion amount is ran out.");
+        }
+        events.rejected(activityId, "nobody", "no reservation");
+
+        List<String> logged = linesOf(activityId);
+        assertEquals(4, logged.size(), logged.toString());
+        assertTrue(logged.get(0).startsWith("event=reserved activity=" + activityId + " user=user-0"));
+        assertTrue(logged.get(1).endsWith("code=ABCDEFGH"));
+        assertTrue(logged.get(2).contains("user=user-0 reason=\"the promotion amount is ran out.\""));
+        assertTrue(logged.get(3).contains("user=nobody reason=\"no reservation\""));
+
+        events.summarize();
+        logged = linesOf(activityId);
+        assertEquals(5, logged.size());
+        assertTrue(logged.get(4).startsWith("event=summary activity=" + activityId));
+        assertTrue(logged.get(4).contains("reserved=1 issued=1"));
+        assertTrue(logged.get(4).contains("the promotion amount is ran out.: 10"));
+        assertTrue(logged.get(4).contains("no reservation: 1"));
+
+        // the next interval logs the first rejection again, and an idle activity has no summary.
+        events.rejected(activityId, "user-1", "no reservation");
+        assertEquals(6, linesOf(activityId).size());
+        events.summarize();
+        events.summarize();
+        assertEquals(7, linesOf(activityId).size());
+    }
+
+    public static class EventsProfile implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of(
+                    "promotion.events.sampleRate", "1",
+                    "promotion.events.summaryInterval", "PT1H"
+            );
+        }
+    }
+}
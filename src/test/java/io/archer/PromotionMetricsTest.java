@@ -0,0 +1,89 @@
+package io.archer;
+
+import io.archer.dba.cache.PromotionCache;
+import io.archer.dba.sql.ActivityFacade;
+import io.archer.model.Activity;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.junit.jupiter.api.Assertions.*;
+
+@QuarkusTest
+class PromotionMetricsTest {
+    @Inject
+    ActivityRegistry registry;
+
+    @Inject
+    ActivityFacade facade;
+
+    @Inject
+    PromotionCache cache;
+
+    private void issue(String activityId, String userId, int status) {
+        given()
+                .contentType("application/json")
+                .body("{\"user\": \"" + userId + "\"}")
+                .when().post("/activities/" + activityId + "/issue")
+                .then()
+                .statusCode(status);
+    }
+
+    @Test
+    void testMetrics() throws SQLException, InterruptedException {
+        String activityId = "test-" + UUID.randomUUID();
+        for (int i = 0; i < 5; i++) {
+            cache.reserve(activityId, "user-" + i).await().indefinitely();
+        }
+        Instant now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        facade.save(
+                new Activity()
+                        .setId(activityId)
+                        .setReservingTime(now.minus(Duration.ofMinutes(2)))
+                        .setReservingDuration(Duration.ofMinutes(1))
+                        .setIssuingTime(now.minus(Duration.ofMinutes(1)))
+                        .setIssuingDuration(Duration.ofMinutes(5))
+                        .setAmount(1)
+        );
+        registry.reload();
+        for (int i = 0; i < 50 && cache.remaining(activityId).await().indefinitely() == null; i++) {
+            Thread.sleep(100);
+        }
+        issue(activityId, "user-0", 200);
+        issue(activityId, "user-0", 403);
+        issue(activityId, "nobody", 403);
+        issue(activityId, "user-1", 403);
+
+        String tag = "activity=\"" + activityId + "\"";
+        String metrics = given()
+                .when().get("/q/metrics")
+                .then()
+                .statusCode(200)
+                .extract().asString();
+        assertTrue(metrics.contains("promotion_reserved_total{" + tag + "} 5.0"), metrics);
+        assertTrue(metrics.contains("promotion_issued_total{" + tag + "} 1.0"));
+        assertTrue(metrics.contains("promotion_rejected_total{" + tag + ",reason=\"duplicated\"} 1.0"));
+        assertTrue(metrics.contains("promotion_rejected_total{" + tag + ",reason=\"no_reservation\"} 1.0"));
+        assertTrue(metrics.contains("promotion_rejected_total{" + tag + ",reason=\"ran_out\"} 1.0"));
+
+        given()
+                .when().get("/q/metrics")
+                .then()
+                .body(containsString("promotion_redis_seconds_bucket{step=\"reserve\""))
+                .body(containsString("promotion_redis_seconds_count{step=\"issue\"}"))
+                .body(containsString("promotion_timer_drift_seconds_count{timer=\"prepare\"}"))
+                .body(containsString("promotion_prepare_seconds_count{outcome=\"success\"}"))
+                .body(containsString("promotion_queue_depth{queue=\"issued\"}"))
+                .body(containsString("promotion_queue_dropped_total{queue=\"reserved\"}"))
+                .body(containsString("admission_limit "))
+                .body(containsString("admission_rejected_total{reason=\"overloaded\"}"));
+    }
+}
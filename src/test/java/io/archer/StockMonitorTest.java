@@ -0,0 +1,198 @@
+package io.archer;
+
+import io.archer.dba.cache.PromotionCache;
+import io.archer.dba.cache.StockNotifier;
+import io.archer.dba.sql.ActivityFacade;
+import io.archer.model.Activity;
+import io.quarkus.redis.client.RedisClientName;
+import io.quarkus.redis.datasource.RedisDataSource;
+import io.quarkus.test.common.http.TestHTTPResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.smallrye.mutiny.subscription.Cancellable;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.jupiter.api.Assertions.*;
+
+@QuarkusTest
+class StockMonitorTest {
+    @Inject
+    ActivityRegistry registry;
+
+    @Inject
+    ActivityFacade facade;
+
+    @Inject
+    PromotionCache cache;
+
+    @Inject
+    StockNotifier notifier;
+
+    @Inject
+    @RedisClientName("promotion")
+    RedisDataSource redisDataSource;
+
+    @TestHTTPResource("/activities")
+    URI activities;
+
+    private String issuing(int amount, int users) throws SQLException, InterruptedException {
+        String activityId = "test-" + UUID.randomUUID();
+        for (int i = 0; i < users; i++) {
+            cache.reserve(activityId, "user-" + i).await().indefinitely();
+        }
+        // the reservation has closed, the checker counts the amount once the activity is loaded.
+        Instant now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        facade.save(
+                new Activity()
+                        .setId(activityId)
+                        .setReservingTime(now.minus(Duration.ofMinutes(2)))
+                        .setReservingDuration(Duration.ofMinutes(1))
+                        .setIssuingTime(now.minus(Duration.ofMinutes(1)))
+                        .setIssuingDuration(Duration.ofMinutes(5))
+                        .setAmount(amount)
+        );
+        registry.reload();
+        for (int i = 0; i < 50 && cache.remaining(activityId).await().indefinitely() == null; i++) {
+            Thread.sleep(100);
+        }
+        return activityId;
+    }
+
+    private void issue(String activityId, String userId, int status, String message) {
+        given()
+                .contentType("application/json")
+                .body("{\"user\": \"" + userId + "\"}")
+                .when().post("/activities/" + activityId + "/issue")
+                .then()
+                .statusCode(status)
+                .body("message", is(message));
+    }
+
+    private BlockingQueue<String> watch(String activityId) throws Exception {
+        BlockingQueue<String> events = new LinkedBlockingQueue<>();
+        HttpResponse<Stream<String>> response = HttpClient.newHttpClient().send(
+                HttpRequest.newBuilder(URI.create(activities + "/" + activityId + "/stock")).GET().build(),
+                HttpResponse.BodyHandlers.ofLines()
+        );
+        assertEquals(200, response.statusCode());
+        Thread reader = new Thread(() -> {
+            response.body().filter(line -> line.startsWith("data:")).forEach(line -> events.add(line.substring(5)));
+            events.add("closed");
+        });
+        reader.setDaemon(true);
+        reader.start();
+        return events;
+    }
+
+    @Test
+    void testSoldOut() throws Exception {
+        String activityId = issuing(1, 3);
+        BlockingQueue<String> events = watch(activityId);
+        assertEquals("{\"remaining\":1,\"soldOut\":false}", events.poll(5, TimeUnit.SECONDS));
+
+        issue(activityId, "user-0", 200, null);
+        issue(activityId, "user-1", 403, "the promotion amount is ran out.");
+        assertTrue(cache.isSoldOut(activityId));
+        // refused without looking up the user.
+        issue(activityId, "nobody", 403, "the promotion amount is ran out.");
+
+        String event = events.poll(5, TimeUnit.SECONDS);
+        if ("{\"remaining\":0,\"soldOut\":false}".equals(event)) {
+            // the amount was read between the issue and the sold-out event.
+            event = events.poll(5, TimeUnit.SECONDS);
+        }
+        assertEquals("{\"remaining\":0,\"soldOut\":true}", event);
+        assertEquals("closed", events.poll(5, TimeUnit.SECONDS));
+
+        // a coupon given back restocks the activity.
+        cache.reclaim(activityId, "user-0").await().indefinitely();
+        assertFalse(cache.isSoldOut(activityId));
+        // the stock is read again for the next watcher.
+        assertEquals("{\"remaining\":1,\"soldOut\":false}", watch(activityId).poll(5, TimeUnit.SECONDS));
+        issue(activityId, "user-1", 200, null);
+    }
+
+    @Test
+    void testSoldOutByAnotherNode() throws Exception {
+        String activityId = issuing(5, 10);
+        assertFalse(cache.isSoldOut(activityId));
+        redisDataSource.pubsub(String.class).publish("promotion:stock", "sold-out:" + activityId);
+        for (int i = 0; i < 50 && !cache.isSoldOut(activityId); i++) {
+            Thread.sleep(100);
+        }
+        issue(activityId, "user-0", 403, "the promotion amount is ran out.");
+
+        redisDataSource.pubsub(String.class).publish("promotion:stock", "restocked:" + activityId);
+        for (int i = 0; i < 50 && cache.isSoldOut(activityId); i++) {
+            Thread.sleep(100);
+        }
+        issue(activityId, "user-0", 200, null);
+    }
+
+    @Test
+    void testConcurrentChanges() throws Exception {
+        String prefix = "test-" + UUID.randomUUID() + "-";
+        AtomicInteger received = new AtomicInteger();
+        AtomicInteger inside = new AtomicInteger();
+        AtomicBoolean overlapped = new AtomicBoolean();
+        Cancellable subscription = notifier.changes().filter(id -> id.startsWith(prefix)).subscribe().with(id -> {
+            // the subscriber is never called by two threads at once.
+            if (inside.incrementAndGet() > 1) {
+                overlapped.set(true);
+            }
+            received.incrementAndGet();
+            inside.decrementAndGet();
+        });
+        try {
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            for (int t = 0; t < 8; t++) {
+                int thread = t;
+                executor.submit(() -> {
+                    for (int i = 0; i < 500; i++) {
+                        notifier.soldOut(prefix + thread + "-" + i);
+                        notifier.restocked(prefix + thread + "-" + i);
+                    }
+                });
+            }
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+            for (int i = 0; i < 50 && received.get() < 8000; i++) {
+                Thread.sleep(100);
+            }
+            // the events published by this node come back through the channel, and may be told again.
+            assertTrue(received.get() >= 8000, "received " + received.get());
+            assertFalse(overlapped.get());
+        } finally {
+            subscription.cancel();
+        }
+    }
+
+    @Test
+    void testUnknownActivity() {
+        given()
+                .when().get("/activities/unknown/stock")
+                .then()
+                .statusCode(404)
+                .body("message", is("The activity is not found."));
+    }
+}
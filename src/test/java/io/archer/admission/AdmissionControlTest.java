@@ -0,0 +1,129 @@
+package io.archer.admission;
+
+import io.archer.ActivityRegistry;
+import io.archer.dba.sql.ActivityFacade;
+import io.archer.model.Activity;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.UUID;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.jupiter.api.Assertions.*;
+
+@QuarkusTest
+@TestProfile(AdmissionControlTest.AdmissionProfile.class)
+class AdmissionControlTest {
+    @Inject
+    AdmissionControl admission;
+
+    @Inject
+    ActivityFacade facade;
+
+    @Inject
+    ActivityRegistry registry;
+
+    @Test
+    void testDuplicated() throws SQLException {
+        String activityId = "test-" + UUID.randomUUID();
+        AdmissionControl.Permit permit = admission.admit("issue", activityId, "user-0");
+        assertTrue(permit.isGranted());
+        AdmissionControl.Permit duplicated = admission.admit("issue", activityId, "user-0");
+        assertEquals(AdmissionControl.Rejection.DUPLICATED, duplicated.getRejection());
+        assertEquals(1, duplicated.getRetryAfter());
+        // another request of the user is not a duplicate.
+        AdmissionControl.Permit reserve = admission.admit("reserve", activityId, "user-0");
+        assertTrue(reserve.isGranted());
+        reserve.release();
+
+        // the endpoint answers 429 with Retry-After.
+        Instant now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        facade.save(
+                new Activity()
+                        .setId(activityId)
+                        .setReservingTime(now.minus(Duration.ofMinutes(2)))
+                        .setReservingDuration(Duration.ofMinutes(1))
+                        .setIssuingTime(now.minus(Duration.ofMinutes(1)))
+                        .setIssuingDuration(Duration.ofMinutes(5))
+                        .setPercentage(20)
+        );
+        registry.reload();
+        given()
+                .contentType("application/json")
+                .body("{\"user\": \"user-0\"}")
+                .when().post("/activities/" + activityId + "/issue")
+                .then()
+                .statusCode(429)
+                .header("Retry-After", "1")
+                .body("message", is("The request is being processed."));
+
+        permit.release();
+        AdmissionControl.Permit again = admission.admit("issue", activityId, "user-0");
+        assertTrue(again.isGranted());
+        again.release();
+    }
+
+    @Test
+    void testRateLimited() {
+        String activityId = "test-" + UUID.randomUUID();
+        for (int i = 0; i < 3; i++) {
+            AdmissionControl.Permit permit = admission.admit("issue", activityId, "user-" + i);
+            assertTrue(permit.isGranted());
+            permit.release();
+        }
+        AdmissionControl.Permit limited = admission.admit("issue", activityId, "user-3");
+        assertEquals(AdmissionControl.Rejection.RATE_LIMITED, limited.getRejection());
+        assertTrue(limited.getRetryAfter() >= 1);
+        // the buckets are by activity.
+        AdmissionControl.Permit other = admission.admit("issue", "test-" + UUID.randomUUID(), "user-3");
+        assertTrue(other.isGranted());
+        other.release();
+    }
+
+    @Test
+    void testAdaptiveLimit() throws InterruptedException {
+        // slow requests lower the limit to the minimum.
+        for (int i = 0; i < 50 && admission.getLimit() > 1; i++) {
+            AdmissionControl.Permit permit = admission.admit("issue", "test-" + UUID.randomUUID(), "user-0");
+            assertTrue(permit.isGranted());
+            Thread.sleep(110);
+            permit.release();
+        }
+        assertEquals(1, admission.getLimit());
+        AdmissionControl.Permit first = admission.admit("issue", "test-" + UUID.randomUUID(), "user-0");
+        AdmissionControl.Permit second = admission.admit("issue", "test-" + UUID.randomUUID(), "user-1");
+        assertTrue(first.isGranted());
+        assertEquals(AdmissionControl.Rejection.OVERLOADED, second.getRejection());
+        first.release();
+
+        // fast requests which use the limit raise it again.
+        for (int i = 0; i < 100 && admission.getLimit() == 1; i++) {
+            AdmissionControl.Permit permit = admission.admit("issue", "test-" + UUID.randomUUID(), "user-0");
+            Thread.sleep(20);
+            permit.release();
+        }
+        assertTrue(admission.getLimit() > 1);
+    }
+
+    public static class AdmissionProfile implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of(
+                    "admission.rate.perSecond", "1",
+                    "admission.rate.burst", "3",
+                    "admission.concurrency.initialLimit", "2",
+                    "admission.concurrency.minLimit", "1",
+                    "admission.concurrency.targetLatency", "PT0.05S"
+            );
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package io.archer.admission;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketTest {
+    @Test
+    void testBurstAndRate() {
+        long now = 0;
+        TokenBucket bucket = new TokenBucket(10, 5, now);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, bucket.tryAcquire(now));
+        }
+        // a token every 100 ms.
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), bucket.tryAcquire(now));
+        assertEquals(0, bucket.tryAcquire(now + TimeUnit.MILLISECONDS.toNanos(100)));
+        assertTrue(bucket.tryAcquire(now + TimeUnit.MILLISECONDS.toNanos(100)) > 0);
+    }
+
+    @Test
+    void testIdle() {
+        long now = System.nanoTime();
+        TokenBucket bucket = new TokenBucket(10, 5, now);
+        // an hour idle still fills one burst only.
+        now += TimeUnit.HOURS.toNanos(1);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, bucket.tryAcquire(now));
+        }
+        assertTrue(bucket.tryAcquire(now) > 0);
+    }
+}
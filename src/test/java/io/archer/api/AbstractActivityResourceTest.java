@@ -0,0 +1,241 @@
+package io.archer.api;
+
+import io.archer.ActivityRegistry;
+import io.archer.dba.cache.PromotionCache;
+import io.archer.dba.sql.ActivityFacade;
+import io.archer.model.Activity;
+import io.archer.model.Promotion;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.startsWith;
+
+/**
+ * The answers of the activity endpoints, run in the execution of each test profile.
+ */
+abstract class AbstractActivityResourceTest {
+    @Inject
+    ActivityRegistry registry;
+
+    @Inject
+    ActivityFacade facade;
+
+    @Inject
+    PromotionCache cache;
+
+    private void save(String activityId, Instant reservingTime, Instant issuingTime) throws SQLException {
+        facade.save(
+                new Activity()
+                        .setId(activityId)
+                        .setReservingTime(reservingTime)
+                        .setReservingDuration(Duration.ofMinutes(1))
+                        .setIssuingTime(issuingTime)
+                        .setIssuingDuration(Duration.ofMinutes(5))
+                        .setAmount(1)
+        );
+        registry.reload();
+    }
+
+    private String reserving() throws SQLException {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        String activityId = "test-" + UUID.randomUUID();
+        save(activityId, now.minusSeconds(10), now.plus(Duration.ofMinutes(1)));
+        return activityId;
+    }
+
+    @Test
+    void testReserveBatch() throws SQLException {
+        String activityId = reserving();
+        given()
+                .contentType("application/json")
+                .body("{\"users\": [\"user-0\", \"user-1\"]}")
+                .when().post("/activities/" + activityId + "/reserve/batch")
+                .then()
+                .statusCode(200)
+                .body("results", hasSize(2))
+                .body("results[0].user", is("user-0"))
+                .body("results[0].status", is(200))
+                .body("results[0].id", notNullValue())
+                .body("results[1].user", is("user-1"))
+                .body("results[1].reservedTime", notNullValue());
+
+        // the users of the batch are reserved like the ones of the single request.
+        given()
+                .contentType("application/json")
+                .body("{\"user\": \"user-1\"}")
+                .when().post("/activities/" + activityId + "/reserve")
+                .then()
+                .statusCode(200)
+                .body("id", is(cache.isReserved(activityId, "user-1").await().indefinitely().getId().toString()));
+    }
+
+    @Test
+    void testIdempotencyKey() throws SQLException {
+        String activityId = reserving();
+        String id = given()
+                .contentType("application/json")
+                .header("Idempotency-Key", "key-0")
+                .body("{\"user\": \"user-0\"}")
+                .when().post("/activities/" + activityId + "/reserve")
+                .then()
+                .statusCode(200)
+                .header("Idempotent-Replayed", nullValue())
+                .extract().path("id");
+
+        // the retry is answered from the kept answer.
+        given()
+                .contentType("application/json")
+                .header("Idempotency-Key", "key-0")
+                .body("{\"user\": \"user-0\"}")
+                .when().post("/activities/" + activityId + "/reserve")
+                .then()
+                .statusCode(200)
+                .header("Idempotent-Replayed", is("true"))
+                .body("id", is(id));
+        given()
+                .contentType("application/json")
+                .header("Idempotency-Key", "key-0")
+                .body("{\"user\": \"user-1\"}")
+                .when().post("/activities/" + activityId + "/reserve")
+                .then()
+                .statusCode(422);
+
+        // without the key, the reservation is answered again by Redis.
+        given()
+                .contentType("application/json")
+                .body("{\"user\": \"user-0\"}")
+                .when().post("/activities/" + activityId + "/reserve")
+                .then()
+                .statusCode(200)
+                .header("Idempotent-Replayed", nullValue())
+                .body("id", is(id));
+    }
+
+    @Test
+    void testIssue() throws Exception {
+        String activityId = "test-" + UUID.randomUUID();
+        for (int i = 0; i < 2; i++) {
+            cache.reserve(activityId, "user-" + i).await().indefinitely();
+        }
+        Instant now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        save(activityId, now.minus(Duration.ofMinutes(2)), now.minus(Duration.ofMinutes(1)));
+        for (int i = 0; i < 50 && cache.remaining(activityId).await().indefinitely() == null; i++) {
+            Thread.sleep(100);
+        }
+        given()
+                .contentType("application/json")
+                .body("{\"user\": \"user-0\"}")
+                .when().post("/activities/" + activityId + "/issue")
+                .then()
+                .statusCode(200)
+                .body("code", notNullValue());
+        given()
+                .contentType("application/json")
+                .body("{\"user\": \"user-0\"}")
+                .when().post("/activities/" + activityId + "/issue")
+                .then()
+                .statusCode(403)
+                .body("message", is("the promotion has been issued."));
+        given()
+                .contentType("application/json")
+                .body("{\"user\": \"nobody\"}")
+                .when().post("/activities/" + activityId + "/issue")
+                .then()
+                .statusCode(403)
+                .body("message", is("no reservation"));
+    }
+
+    @Test
+    void testIssueBatch() throws Exception {
+        String activityId = "test-" + UUID.randomUUID();
+        for (int i = 0; i < 3; i++) {
+            cache.reserve(activityId, "user-" + i).await().indefinitely();
+        }
+        // the reservation has closed, the checker counts the amount once the activity is loaded.
+        Instant now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        save(activityId, now.minus(Duration.ofMinutes(2)), now.minus(Duration.ofMinutes(1)));
+        for (int i = 0; i < 50 && cache.remaining(activityId).await().indefinitely() == null; i++) {
+            Thread.sleep(100);
+        }
+        given()
+                .contentType("application/json")
+                .body("{\"users\": [\"user-0\", \"nobody\", \"user-1\"]}")
+                .when().post("/activities/" + activityId + "/issue/batch")
+                .then()
+                .statusCode(200)
+                .body("results[0].status", is(200))
+                .body("results[0].code", notNullValue())
+                .body("results[1].status", is(403))
+                .body("results[1].message", is("no reservation"))
+                .body("results[2].status", is(403))
+                .body("results[2].message", is("the promotion amount is ran out."))
+                .body("results[2].code", nullValue());
+
+        // the activity is sold out now, the batch still answers each user.
+        given()
+                .contentType("application/json")
+                .body("{\"users\": [\"user-1\", \"user-2\"]}")
+                .when().post("/activities/" + activityId + "/issue/batch")
+                .then()
+                .statusCode(200)
+                .body("results", hasSize(2))
+                .body("results[0].user", is("user-1"))
+                .body("results[0].status", is(403))
+                .body("results[0].message", is("the promotion amount is ran out."))
+                .body("results[1].user", is("user-2"))
+                .body("results[1].status", is(403));
+    }
+
+    @Test
+    void testInvalidBatch() throws SQLException {
+        String activityId = reserving();
+        String tooLong = "u".repeat(Promotion.MAX_ID_LENGTH + 1);
+        for (String body : new String[]{
+                "{}",
+                "{\"users\": []}",
+                "{\"users\": [1]}",
+                "{\"users\": \"user-0\"}",
+                "{\"users\": [\"user-0\", \"" + tooLong + "\"]}"
+        }) {
+            given()
+                    .contentType("application/json")
+                    .body(body)
+                    .when().post("/activities/" + activityId + "/reserve/batch")
+                    .then()
+                    .statusCode(400)
+                    .body("message", startsWith("The batch must have 1 to "));
+        }
+        // a user id longer than its column is refused before it reaches the store.
+        given()
+                .contentType("application/json")
+                .body("{\"user\": \"" + tooLong + "\"}")
+                .when().post("/activities/" + activityId + "/reserve")
+                .then()
+                .statusCode(400)
+                .body("message", is("The user must have 1 to " + Promotion.MAX_ID_LENGTH + " characters."));
+        given()
+                .contentType("application/json")
+                .body("{\"users\": [\"user-0\"]}")
+                .when().post("/activities/" + activityId + "/issue/batch")
+                .then()
+                .statusCode(403)
+                .body("message", is("The activity is not available for issuing."));
+        given()
+                .contentType("application/json")
+                .body("{\"users\": [\"user-0\"]}")
+                .when().post("/activities/unknown/reserve/batch")
+                .then()
+                .statusCode(404);
+    }
+}
@@ -0,0 +1,20 @@
+package io.archer.api;
+
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+
+import java.util.Map;
+
+@QuarkusTest
+@TestProfile(ActivityResourceBlockingTest.BlockingProfile.class)
+class ActivityResourceBlockingTest extends AbstractActivityResourceTest {
+    // Execute the same tests but with the endpoints waiting for the store on the virtual threads.
+
+    public static class BlockingProfile implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of("activity.execution", "BLOCKING");
+        }
+    }
+}
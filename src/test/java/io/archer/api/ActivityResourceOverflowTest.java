@@ -0,0 +1,20 @@
+package io.archer.api;
+
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+
+import java.util.Map;
+
+@QuarkusTest
+@TestProfile(ActivityResourceOverflowTest.BlockProfile.class)
+class ActivityResourceOverflowTest extends AbstractActivityResourceTest {
+    // Execute the same tests but with the reactive endpoints offering to queues which wait for room.
+
+    public static class BlockProfile implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of("promotion.queue.overflow", "BLOCK");
+        }
+    }
+}
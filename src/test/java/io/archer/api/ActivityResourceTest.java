@@ -0,0 +1,7 @@
+package io.archer.api;
+
+import io.quarkus.test.junit.QuarkusTest;
+
+@QuarkusTest
+class ActivityResourceTest extends AbstractActivityResourceTest {
+}
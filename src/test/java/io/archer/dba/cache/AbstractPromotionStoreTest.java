@@ -0,0 +1,135 @@
+package io.archer.dba.cache;
+
+import io.archer.exception.PromotionException;
+import io.archer.model.Activity;
+import io.archer.model.Promotion;
+import io.smallrye.mutiny.Uni;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The behavior every {@link PromotionStore} engine has, run against the engine of each test profile.
+ */
+abstract class AbstractPromotionStoreTest {
+    @Inject
+    PromotionStore store;
+
+    private String activityId;
+
+    @BeforeEach
+    void setUp() {
+        activityId = "test-" + UUID.randomUUID();
+    }
+
+    private void reserve(int users) {
+        for (int i = 0; i < users; i++) {
+            store.reserve(activityId, "user-" + i).await().indefinitely();
+        }
+        store.prepare(new Activity().setId(activityId).setPercentage(20), "test").await().indefinitely();
+    }
+
+    private String failureOf(String userId) {
+        // PromotionException is checked, so await() wraps it.
+        Throwable cause = assertThrows(
+                CompletionException.class,
+                () -> store.issue(activityId, userId).await().indefinitely()
+        ).getCause();
+        assertInstanceOf(PromotionException.class, cause);
+        return cause.getMessage();
+    }
+
+    @Test
+    void testIssue() {
+        reserve(10);
+        Promotion promotion = store.issue(activityId, "user-0").await().indefinitely();
+        assertEquals("user-0", promotion.getUser());
+        assertNotNull(promotion.getId());
+        assertNotNull(promotion.getReservedTime());
+        assertNotNull(promotion.getIssuedTime());
+        assertEquals(8, promotion.getCode().length());
+        assertEquals(promotion.getCode(), store.isReserved(activityId, "user-0").await().indefinitely().getCode());
+    }
+
+    @Test
+    void testIssueRejections() {
+        reserve(10);
+        store.issue(activityId, "user-0").await().indefinitely();
+        assertEquals("the promotion has been issued.", failureOf("user-0"));
+        assertEquals("no reservation", failureOf("nobody"));
+        store.issue(activityId, "user-1").await().indefinitely();
+        assertEquals("the promotion amount is ran out.", failureOf("user-2"));
+    }
+
+    @Test
+    void testReclaim() {
+        reserve(5);
+        store.issue(activityId, "user-0").await().indefinitely();
+        assertEquals("the promotion amount is ran out.", failureOf("user-1"));
+        store.reclaim(activityId, "user-0").await().indefinitely();
+        assertNull(store.isReserved(activityId, "user-0").await().indefinitely());
+        assertNotNull(store.issue(activityId, "user-1").await().indefinitely().getCode());
+    }
+
+    @Test
+    void testReserveIfAbsent() {
+        // concurrent requests of a user get the same reservation, which only one of them has written.
+        List<PromotionStore.Outcome> outcomes = Uni.join().all(
+                IntStream.range(0, 10).mapToObj(i -> store.reserveIfAbsent(activityId, "user-0")).toList()
+        ).andFailFast().await().indefinitely();
+        assertEquals(1, outcomes.stream().filter(PromotionStore.Outcome::created).count());
+        assertEquals(1, outcomes.stream().map(outcome -> outcome.promotion().getId()).distinct().count());
+        assertEquals(
+                outcomes.get(0).promotion().getReservedTime(),
+                store.isReserved(activityId, "user-0").await().indefinitely().getReservedTime()
+        );
+    }
+
+    @Test
+    void testReserveAll() {
+        Promotion reserved = store.reserve(activityId, "user-1").await().indefinitely();
+        List<PromotionStore.Outcome> outcomes = store.reserveAll(
+                activityId,
+                List.of("user-0", "user-1", "user-0")
+        ).await().indefinitely();
+        assertEquals(List.of("user-0", "user-1", "user-0"), outcomes.stream().map(PromotionStore.Outcome::userId).toList());
+        // a user reserves once, in the same batch or before.
+        assertEquals(outcomes.get(0).promotion().getId(), outcomes.get(2).promotion().getId());
+        assertEquals(reserved.getId(), outcomes.get(1).promotion().getId());
+        assertEquals(
+                outcomes.get(0).promotion().getId(),
+                store.isReserved(activityId, "user-0").await().indefinitely().getId()
+        );
+    }
+
+    @Test
+    void testIssueAll() {
+        reserve(10);
+        List<PromotionStore.Outcome> outcomes = store.issueAll(
+                activityId,
+                List.of("user-0", "nobody")
+        ).await().indefinitely();
+        assertEquals(
+                outcomes.get(0).promotion().getCode(),
+                store.isReserved(activityId, "user-0").await().indefinitely().getCode()
+        );
+        assertEquals("no reservation", outcomes.get(1).error());
+        outcomes = store.issueAll(activityId, List.of("user-0")).await().indefinitely();
+        assertEquals("the promotion has been issued.", outcomes.get(0).error());
+
+        // one coupon is left for two users, the modes which issue one by one don't keep their order.
+        outcomes = store.issueAll(activityId, List.of("user-1", "user-2")).await().indefinitely();
+        assertEquals(1, outcomes.stream().filter(outcome -> outcome.promotion() != null).count());
+        assertEquals(
+                List.of("the promotion amount is ran out."),
+                outcomes.stream().map(PromotionStore.Outcome::error).filter(error -> error != null).toList()
+        );
+    }
+}
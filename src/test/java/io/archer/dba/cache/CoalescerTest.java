@@ -0,0 +1,81 @@
+package io.archer.dba.cache;
+
+import io.smallrye.mutiny.Uni;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CoalescerTest {
+    private final List<Integer> sizes = new CopyOnWriteArrayList<>();
+
+    private Coalescer<Integer, Integer> coalescer(int maxSize, long maxDelayNanos) {
+        return new Coalescer<>(maxSize, maxDelayNanos, items -> {
+            List<Integer> results = new ArrayList<>();
+            for (int item : items) {
+                results.add(item * 2);
+            }
+            return Uni.createFrom().item(results);
+        }, (size, waitNanos, sendNanos, success) -> sizes.add(size));
+    }
+
+    @Test
+    void testMaxSize() {
+        Coalescer<Integer, Integer> coalescer = coalescer(4, TimeUnit.HOURS.toNanos(1));
+        List<Uni<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Uni<Integer> result = coalescer.submit(i).memoize().indefinitely();
+            result.subscribe().with(item -> {
+            });
+            results.add(result);
+        }
+        // full batches are sent at once, the rest waits for the timer.
+        assertEquals(List.of(4, 4), sizes);
+        coalescer.flush();
+        assertEquals(List.of(4, 4, 2), sizes);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i * 2, results.get(i).await().indefinitely());
+        }
+        coalescer.close();
+    }
+
+    @Test
+    void testMaxDelay() {
+        Coalescer<Integer, Integer> coalescer = coalescer(64, TimeUnit.MILLISECONDS.toNanos(1));
+        List<Integer> results = Uni.join().all(
+                coalescer.submit(1),
+                coalescer.submit(2),
+                coalescer.submit(3)
+        ).andFailFast().await().atMost(Duration.ofSeconds(5));
+        assertEquals(List.of(2, 4, 6), results);
+        assertEquals(3, sizes.stream().mapToInt(Integer::intValue).sum());
+        coalescer.close();
+    }
+
+    @Test
+    void testFailure() {
+        Coalescer<Integer, Integer> coalescer = new Coalescer<>(
+                2,
+                TimeUnit.HOURS.toNanos(1),
+                items -> Uni.createFrom().failure(new IllegalStateException("down")),
+                (size, waitNanos, sendNanos, success) -> assertFalse(success)
+        );
+        Uni<Integer> first = coalescer.submit(1).memoize().indefinitely();
+        first.subscribe().with(item -> {
+        }, cause -> {
+        });
+        // the second call fills the batch, both fail with it.
+        IllegalStateException e = assertThrows(
+                IllegalStateException.class,
+                () -> coalescer.submit(2).await().indefinitely()
+        );
+        assertEquals("down", e.getMessage());
+        assertThrows(IllegalStateException.class, () -> first.await().indefinitely());
+        coalescer.close();
+    }
+}
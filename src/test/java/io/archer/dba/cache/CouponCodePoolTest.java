@@ -0,0 +1,45 @@
+package io.archer.dba.cache;
+
+import io.smallrye.mutiny.Uni;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CouponCodePoolTest {
+    @Test
+    void testBlocks() {
+        AtomicInteger blocks = new AtomicInteger();
+        CouponCodePool pool = new CouponCodePool("test", () -> {
+            int block = blocks.getAndIncrement();
+            return Uni.createFrom().item(new String[]{block + "-0", block + "-1", block + "-2", block + "-3"});
+        });
+        assertNull(pool.poll());
+        pool.fill().await().indefinitely();
+        assertEquals("0-0", pool.poll());
+        assertEquals("0-1", pool.poll());
+        // the next block is generated once half of a block is taken.
+        assertEquals("0-2", pool.poll());
+        assertEquals(2, blocks.get());
+        assertEquals("0-3", pool.poll());
+        assertEquals("1-0", pool.poll());
+
+        Set<String> codes = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            assertTrue(codes.add(pool.next().await().indefinitely()));
+        }
+        assertTrue(blocks.get() >= 26);
+
+        pool.close();
+        assertNull(pool.poll());
+    }
+
+    @Test
+    void testFailedGeneration() {
+        CouponCodePool pool = new CouponCodePool("test", () -> Uni.createFrom().item(new String[0]));
+        assertThrows(IllegalStateException.class, () -> pool.next().await().indefinitely());
+    }
+}
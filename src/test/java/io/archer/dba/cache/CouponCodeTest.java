@@ -0,0 +1,56 @@
+package io.archer.dba.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CouponCodeTest {
+    private static final String CHARACTERS = "ABCDEFGHJKLMNPQRSTUVWXYZabcdefghijkmnpqrstuvwxyz23456789";
+
+    private static void assertCode(String code) {
+        assertEquals(CouponCode.LENGTH, code.length());
+        for (char c : code.toCharArray()) {
+            assertTrue(CHARACTERS.indexOf(c) >= 0, code);
+        }
+    }
+
+    @Test
+    void testRandom() {
+        SplittableRandom random = new SplittableRandom(1);
+        for (int i = 0; i < 1000; i++) {
+            assertCode(CouponCode.random(random));
+        }
+    }
+
+    @Test
+    void testPermutationIsUnique() {
+        long key = CouponCode.key(0, "activity");
+        Set<String> codes = new HashSet<>();
+        for (long sequence = 0; sequence < 200_000; sequence++) {
+            String code = CouponCode.permute(key, sequence);
+            assertCode(code);
+            assertTrue(codes.add(code), "repeated code " + code + " at " + sequence);
+        }
+        // the last numbers of the space too.
+        for (long sequence = CouponCode.SPACE - 1000; sequence < CouponCode.SPACE; sequence++) {
+            assertTrue(codes.add(CouponCode.permute(key, sequence)));
+        }
+        assertThrows(IllegalArgumentException.class, () -> CouponCode.permute(key, CouponCode.SPACE));
+    }
+
+    @Test
+    void testPermutationByKey() {
+        long key = CouponCode.key(0, "activity");
+        assertEquals(CouponCode.permute(key, 42), CouponCode.permute(CouponCode.key(0, "activity"), 42));
+        assertNotEquals(CouponCode.permute(key, 42), CouponCode.permute(CouponCode.key(0, "another"), 42));
+        assertNotEquals(CouponCode.permute(key, 42), CouponCode.permute(CouponCode.key(1, "activity"), 42));
+        // the next numbers don't give similar codes.
+        String first = CouponCode.permute(key, 0);
+        String second = CouponCode.permute(key, 1);
+        assertNotEquals(first.substring(0, 4), second.substring(0, 4));
+    }
+}
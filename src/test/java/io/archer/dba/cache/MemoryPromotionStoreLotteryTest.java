@@ -0,0 +1,76 @@
+package io.archer.dba.cache;
+
+import io.archer.PromotionOptions;
+import io.archer.model.Activity;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@QuarkusTest
+@TestProfile(MemoryPromotionStoreLotteryTest.LotteryProfile.class)
+class MemoryPromotionStoreLotteryTest {
+    @Inject
+    PromotionStore store;
+
+    @Inject
+    PromotionOptions options;
+
+    @Test
+    void testDraw() {
+        String activityId = "test-" + UUID.randomUUID();
+        List<String> userIds = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            userIds.add("user-" + i);
+        }
+        store.reserveAll(activityId, userIds).await().indefinitely();
+        store.prepare(new Activity().setId(activityId).setPercentage(20), "test").await().indefinitely();
+
+        Set<String> winners = new TreeSet<>();
+        for (PromotionStore.Outcome outcome : store.issueAll(activityId, userIds).await().indefinitely()) {
+            if (outcome.promotion() != null) {
+                winners.add(outcome.userId());
+            } else {
+                assertEquals("the reservation is not drawn in the lottery.", outcome.error());
+            }
+        }
+        // the same winners as sorting every user by the score of the draw in Redis.
+        long seed = LotteryDraw.seed(options.lottery().seed(), activityId);
+        Set<String> expected = userIds.stream()
+                .sorted(Comparator.comparingDouble(userId -> LotteryDraw.score(seed, userId)))
+                .limit(200)
+                .collect(Collectors.toCollection(TreeSet::new));
+        assertEquals(expected, winners);
+        assertEquals(0, store.remaining(activityId).await().indefinitely());
+        assertTrue(store.isSoldOut(activityId));
+
+        // the coupon of a winner is not given back, nobody else is drawn to take it.
+        store.reclaim(activityId, winners.iterator().next()).await().indefinitely();
+        assertEquals(0, store.remaining(activityId).await().indefinitely());
+        assertTrue(store.isSoldOut(activityId));
+    }
+
+    public static class LotteryProfile implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of(
+                    "promotion.store", "MEMORY",
+                    "promotion.issuingMode", "LOTTERY",
+                    "quarkus.redis.devservices.enabled", "false",
+                    "quarkus.redis.promotion.hosts", "redis://localhost:1/0"
+            );
+        }
+    }
+}
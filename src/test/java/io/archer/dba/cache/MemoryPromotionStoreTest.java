@@ -0,0 +1,28 @@
+package io.archer.dba.cache;
+
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+
+import java.util.Map;
+
+@QuarkusTest
+@TestProfile(MemoryPromotionStoreTest.MemoryProfile.class)
+class MemoryPromotionStoreTest extends AbstractPromotionStoreTest {
+    // Execute the same tests but with the reservations in the memory of this node, off the heap, and no Redis to reach.
+
+    public static class MemoryProfile implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of(
+                    "promotion.store", "MEMORY",
+                    "promotion.memory.segments", "4",
+                    "promotion.memory.initialCapacity", "2",
+                    "promotion.memory.offHeap", "true",
+                    "quarkus.redis.devservices.enabled", "false",
+                    // nothing listens there, a command sent to Redis fails the test.
+                    "quarkus.redis.promotion.hosts", "redis://localhost:1/0"
+            );
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package io.archer.dba.cache;
+
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+
+import java.util.Map;
+
+@QuarkusTest
+@TestProfile(PromotionCacheCoalescedTest.CoalescedProfile.class)
+class PromotionCacheCoalescedTest extends AbstractPromotionStoreTest {
+    // Execute the same tests but with the script calls of concurrent requests sent together.
+
+    public static class CoalescedProfile implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of(
+                    "promotion.coalescing.enabled", "true",
+                    "promotion.coalescing.maxSize", "4",
+                    "promotion.coalescing.maxDelay", "PT0.001S"
+            );
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package io.archer.dba.cache;
+
+import io.archer.exception.PromotionException;
+import io.archer.model.Activity;
+import io.quarkus.redis.client.RedisClientName;
+import io.quarkus.redis.datasource.RedisDataSource;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@QuarkusTest
+class PromotionCacheFilterTest {
+    @Inject
+    PromotionCache cache;
+
+    @Inject
+    @RedisClientName("promotion")
+    RedisDataSource redisDataSource;
+
+    private String failureOf(String activityId, String userId) {
+        Throwable cause = assertThrows(
+                CompletionException.class,
+                () -> cache.issue(activityId, userId).await().indefinitely()
+        ).getCause();
+        assertInstanceOf(PromotionException.class, cause);
+        return cause.getMessage();
+    }
+
+    @Test
+    void testPublish() {
+        String activityId = "test-" + UUID.randomUUID();
+        for (int i = 0; i < 100; i++) {
+            cache.reserve(activityId, "user-" + i).await().indefinitely();
+        }
+        cache.prepare(new Activity().setId(activityId).setPercentage(20), "test").await().indefinitely();
+
+        byte[] published = redisDataSource.value(byte[].class).get("promotion:filter:" + activityId);
+        ReservationFilter filter = ReservationFilter.fromBytes(published);
+        for (int i = 0; i < 100; i++) {
+            assertTrue(filter.mightContain("user-" + i));
+        }
+        assertEquals("no reservation", failureOf(activityId, "nobody"));
+        assertNotNull(cache.issue(activityId, "user-0").await().indefinitely().getCode());
+    }
+
+    @Test
+    void testRerun() {
+        String activityId = "test-" + UUID.randomUUID();
+        // the filter of an earlier run, without the users of this one.
+        ReservationFilter stale = ReservationFilter.create(1, 0.01, 1024);
+        stale.add("earlier");
+        redisDataSource.value(byte[].class).set("promotion:filter:" + activityId, stale.toBytes());
+        cache.reserve(activityId, "user-0").await().indefinitely();
+        Instant now = Instant.now();
+        cache.prepare(
+                new Activity()
+                        .setId(activityId)
+                        .setReservingTime(now.minus(Duration.ofHours(1)))
+                        .setReservingDuration(Duration.ofMinutes(30))
+                        .setIssuingTime(now)
+                        .setIssuingDuration(Duration.ofHours(1))
+                        .setPercentage(100),
+                "test"
+        ).await().indefinitely();
+
+        ReservationFilter filter = ReservationFilter.fromBytes(
+                redisDataSource.value(byte[].class).get("promotion:filter:" + activityId)
+        );
+        assertTrue(filter.mightContain("user-0"));
+        // the filter expires with the amount.
+        long ttl = redisDataSource.key().pttl("promotion:filter:" + activityId);
+        assertTrue(ttl > Duration.ofHours(24).toMillis(), "ttl " + ttl);
+        assertTrue(ttl <= Duration.ofHours(25).toMillis(), "ttl " + ttl);
+    }
+
+    @Test
+    void testLoad() throws InterruptedException {
+        String activityId = "test-" + UUID.randomUUID();
+        cache.reserve(activityId, "user-0").await().indefinitely();
+        // a reservation which is not in the filter published by another node.
+        cache.reserve(activityId, "ghost").await().indefinitely();
+        ReservationFilter filter = ReservationFilter.create(1, 0.01, 1024);
+        filter.add("user-0");
+        redisDataSource.value(byte[].class).set("promotion:filter:" + activityId, filter.toBytes());
+
+        // another node holds the lock and prepares the activity, the amount is not counted yet.
+        redisDataSource.value(String.class).set("lock:" + activityId, "another");
+        try {
+            cache.prepare(new Activity().setId(activityId).setPercentage(20), "test").await().indefinitely();
+            assertEquals("failed to get the promotion amount.", failureOf(activityId, "ghost"));
+            // the first issue starts to load the filter, then the user is refused in memory.
+            String message = null;
+            for (int i = 0; i < 50 && !"no reservation".equals(message); i++) {
+                Thread.sleep(100);
+                message = failureOf(activityId, "ghost");
+            }
+            assertEquals("no reservation", message);
+            assertEquals("failed to get the promotion amount.", failureOf(activityId, "user-0"));
+        } finally {
+            redisDataSource.key().del("lock:" + activityId);
+        }
+    }
+}
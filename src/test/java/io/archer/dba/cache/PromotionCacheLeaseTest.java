@@ -0,0 +1,20 @@
+package io.archer.dba.cache;
+
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+
+import java.util.Map;
+
+@QuarkusTest
+@TestProfile(PromotionCacheLeaseTest.LeaseProfile.class)
+class PromotionCacheLeaseTest extends AbstractPromotionStoreTest {
+    // Execute the same tests but with coupons taken from node leases.
+
+    public static class LeaseProfile implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of("promotion.issuingMode", "LEASE");
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package io.archer.dba.cache;
+
+import io.archer.exception.PromotionException;
+import io.archer.model.Activity;
+import io.quarkus.redis.client.RedisClientName;
+import io.quarkus.redis.datasource.RedisDataSource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@QuarkusTest
+@TestProfile(PromotionCacheLotteryTest.LotteryProfile.class)
+class PromotionCacheLotteryTest {
+    @Inject
+    PromotionCache cache;
+
+    @Inject
+    @RedisClientName("promotion")
+    RedisDataSource redisDataSource;
+
+    private Set<String> issueAll(String activityId, int users) {
+        Set<String> winners = new TreeSet<>();
+        for (int i = 0; i < users; i++) {
+            String userId = "user-" + i;
+            try {
+                cache.issue(activityId, userId).await().indefinitely();
+                winners.add(userId);
+            } catch (CompletionException e) {
+                assertInstanceOf(PromotionException.class, e.getCause());
+                assertEquals("the reservation is not drawn in the lottery.", e.getCause().getMessage());
+            }
+        }
+        return winners;
+    }
+
+    @Test
+    void testDraw() {
+        String activityId = "test-" + UUID.randomUUID();
+        for (int i = 0; i < 1000; i++) {
+            cache.reserve(activityId, "user-" + i).await().indefinitely();
+        }
+        cache.prepare(new Activity().setId(activityId).setPercentage(20), "test").await().indefinitely();
+
+        Set<String> winners = issueAll(activityId, 1000);
+        assertEquals(200, winners.size());
+        assertEquals("0", redisDataSource.value(String.class).get("promotion:amount:" + activityId));
+
+        // drawing the same reservations again picks the same winners.
+        redisDataSource.key().del("promotion:amount:" + activityId);
+        for (String userId : winners) {
+            cache.reclaim(activityId, userId).await().indefinitely();
+            cache.reserve(activityId, userId).await().indefinitely();
+        }
+        cache.prepare(new Activity().setId(activityId).setPercentage(20), "test").await().indefinitely();
+        assertEquals(winners, issueAll(activityId, 1000));
+    }
+
+    @Test
+    void testIssueAll() {
+        String activityId = "test-" + UUID.randomUUID();
+        List<String> userIds = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            userIds.add("user-" + i);
+        }
+        cache.reserveAll(activityId, userIds).await().indefinitely();
+        cache.prepare(new Activity().setId(activityId).setPercentage(20), "test").await().indefinitely();
+
+        Set<String> winners = new TreeSet<>();
+        for (PromotionCache.Outcome outcome : cache.issueAll(activityId, userIds).await().indefinitely()) {
+            if (outcome.promotion() != null) {
+                winners.add(outcome.userId());
+            } else {
+                assertEquals("the reservation is not drawn in the lottery.", outcome.error());
+            }
+        }
+        assertEquals(200, winners.size());
+        assertEquals("0", redisDataSource.value(String.class).get("promotion:amount:" + activityId));
+    }
+
+    @Test
+    void testReclaim() {
+        String activityId = "test-" + UUID.randomUUID();
+        for (int i = 0; i < 100; i++) {
+            cache.reserve(activityId, "user-" + i).await().indefinitely();
+        }
+        cache.prepare(new Activity().setId(activityId).setPercentage(20), "test").await().indefinitely();
+        Set<String> winners = issueAll(activityId, 100);
+        assertEquals(20, winners.size());
+
+        // the coupon of a winner is not given back, nobody else is drawn to take it.
+        cache.reclaim(activityId, winners.iterator().next()).await().indefinitely();
+        assertEquals(0, cache.remaining(activityId).await().indefinitely());
+        String loser = "user-" + IntStream.range(0, 100).filter(i -> !winners.contains("user-" + i)).findFirst().orElseThrow();
+        CompletionException e = assertThrows(
+                CompletionException.class,
+                () -> cache.issue(activityId, loser).await().indefinitely()
+        );
+        assertEquals("the reservation is not drawn in the lottery.", e.getCause().getMessage());
+    }
+
+    public static class LotteryProfile implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of(
+                    "promotion.issuingMode", "LOTTERY",
+                    "promotion.lottery.pageSize", "64"
+            );
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package io.archer.dba.cache;
+
+import io.archer.exception.PromotionException;
+import io.archer.model.Activity;
+import io.archer.model.Promotion;
+import io.archer.model.PromotionCodec;
+import io.quarkus.redis.client.RedisClientName;
+import io.quarkus.redis.datasource.RedisDataSource;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@QuarkusTest
+class PromotionCacheNearCacheTest {
+    @Inject
+    PromotionCache cache;
+
+    @Inject
+    @RedisClientName("promotion")
+    RedisDataSource redisDataSource;
+
+    private String failureOf(String activityId, String userId) {
+        Throwable cause = assertThrows(
+                CompletionException.class,
+                () -> cache.issue(activityId, userId).await().indefinitely()
+        ).getCause();
+        assertInstanceOf(PromotionException.class, cause);
+        return cause.getMessage();
+    }
+
+    @Test
+    void testKnownAnswers() {
+        String activityId = "test-" + UUID.randomUUID();
+        Instant now = Instant.now();
+        for (int i = 0; i < 10; i++) {
+            cache.reserve(activityId, "user-" + i).await().indefinitely();
+        }
+        cache.prepare(
+                new Activity()
+                        .setId(activityId)
+                        .setReservingTime(now.minus(Duration.ofMinutes(2)))
+                        .setReservingDuration(Duration.ofMinutes(1))
+                        .setIssuingTime(now)
+                        .setIssuingDuration(Duration.ofMinutes(5))
+                        .setPercentage(50),
+                "test"
+        ).await().indefinitely();
+
+        cache.issue(activityId, "user-0").await().indefinitely();
+        assertEquals("no reservation", failureOf(activityId, "nobody"));
+
+        // a reservation written by another node is not seen, the answer is kept.
+        Promotion promotion = new Promotion().setId(UUID.randomUUID()).setReservedTime(now);
+        redisDataSource.hash(String.class, String.class, byte[].class)
+                .hset("promotion:" + activityId, "nobody", PromotionCodec.encode(promotion));
+        assertEquals("no reservation", failureOf(activityId, "nobody"));
+
+        // so is a coupon given back by another node.
+        redisDataSource.hash(String.class).hdel("promotion:" + activityId, "user-0");
+        assertEquals("the promotion has been issued.", failureOf(activityId, "user-0"));
+
+        // the writes of this node drop the answers.
+        cache.reserve(activityId, "nobody").await().indefinitely();
+        assertNotNull(cache.issue(activityId, "nobody").await().indefinitely().getCode());
+        cache.reserve(activityId, "user-0").await().indefinitely();
+        cache.reclaim(activityId, "user-0").await().indefinitely();
+        assertEquals("no reservation", failureOf(activityId, "user-0"));
+
+        // the answers are dropped when the issuing closes.
+        cache.close(activityId).await().indefinitely();
+        cache.reserve(activityId, "user-0").await().indefinitely();
+        assertNotNull(cache.issue(activityId, "user-0").await().indefinitely().getCode());
+    }
+}
@@ -0,0 +1,45 @@
+package io.archer.dba.cache;
+
+import io.archer.model.Activity;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@QuarkusTest
+@TestProfile(PromotionCacheSequenceCodeTest.SequenceCodeProfile.class)
+class PromotionCacheSequenceCodeTest extends AbstractPromotionStoreTest {
+    // Execute the same tests but with the codes permuted from a sequence, a few at a time.
+
+    @Test
+    void testUniqueCodes() {
+        String activityId = "test-" + UUID.randomUUID();
+        for (int i = 0; i < 100; i++) {
+            store.reserve(activityId, "user-" + i).await().indefinitely();
+        }
+        store.prepare(new Activity().setId(activityId).setPercentage(100), "test").await().indefinitely();
+        Set<String> codes = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            String code = store.issue(activityId, "user-" + i).await().indefinitely().getCode();
+            assertTrue(codes.add(code), "repeated code " + code);
+        }
+        store.close(activityId).await().indefinitely();
+    }
+
+    public static class SequenceCodeProfile implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of(
+                    "promotion.code.generator", "SEQUENCE",
+                    "promotion.code.poolSize", "3"
+            );
+        }
+    }
+}
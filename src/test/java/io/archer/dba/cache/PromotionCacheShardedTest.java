@@ -0,0 +1,91 @@
+package io.archer.dba.cache;
+
+import io.archer.model.Activity;
+import io.quarkus.redis.client.RedisClientName;
+import io.quarkus.redis.datasource.RedisDataSource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@QuarkusTest
+@TestProfile(PromotionCacheShardedTest.ShardedProfile.class)
+class PromotionCacheShardedTest extends AbstractPromotionStoreTest {
+    // Execute the same tests but with the reservations spread over 8 shards.
+
+    @Inject
+    @RedisClientName("promotion")
+    RedisDataSource redisDataSource;
+
+    @Inject
+    StockNotifier notifier;
+
+    @Test
+    void testSpread() {
+        String activityId = "test-" + UUID.randomUUID();
+        for (int i = 0; i < 100; i++) {
+            store.reserve(activityId, "user-" + i).await().indefinitely();
+        }
+        long total = 0;
+        for (int shard = 0; shard < 8; shard++) {
+            long length = redisDataSource.hash(String.class).hlen("promotion:{" + activityId + ":" + shard + "}");
+            assertTrue(length > 0, "shard " + shard + " is empty");
+            total += length;
+        }
+        assertEquals(100, total);
+        assertEquals(0, redisDataSource.hash(String.class).hlen("promotion:" + activityId));
+    }
+
+    @Test
+    void testGiveBackRestocks() {
+        String activityId = "test-" + UUID.randomUUID();
+        store.reserve(activityId, "user-0").await().indefinitely();
+        store.reserve(activityId, "user-1").await().indefinitely();
+        store.prepare(new Activity().setId(activityId).setAmount(2), "test").await().indefinitely();
+        store.issue(activityId, "user-0").await().indefinitely();
+
+        // the reservation of user-1 is gone from Redis, after this node has been told the activity ran out.
+        for (int shard = 0; shard < 8; shard++) {
+            redisDataSource.hash(String.class).hdel("promotion:{" + activityId + ":" + shard + "}", "user-1");
+        }
+        notifier.soldOut(activityId);
+        assertThrows(CompletionException.class, () -> store.issue(activityId, "user-1").await().indefinitely());
+
+        // the coupon taken for user-1 is given back, and the activity is restocked.
+        assertEquals(1, store.remaining(activityId).await().indefinitely());
+        assertFalse(store.isSoldOut(activityId));
+        store.close(activityId).await().indefinitely();
+    }
+
+    @Test
+    void testRefusalKeepsStock() {
+        String activityId = "test-" + UUID.randomUUID();
+        store.reserve(activityId, "user-0").await().indefinitely();
+        store.prepare(new Activity().setId(activityId).setAmount(3), "test").await().indefinitely();
+        // the reservation is gone from Redis but not from the filter, so the user takes a coupon.
+        for (int shard = 0; shard < 8; shard++) {
+            redisDataSource.hash(String.class).hdel("promotion:{" + activityId + ":" + shard + "}", "user-0");
+        }
+        notifier.soldOut(activityId);
+
+        // the coupon is given back, the amount has not run out, so nobody is told it is restocked.
+        assertThrows(CompletionException.class, () -> store.issue(activityId, "user-0").await().indefinitely());
+        assertEquals(3, store.remaining(activityId).await().indefinitely());
+        assertTrue(notifier.isSoldOut(activityId));
+        store.close(activityId).await().indefinitely();
+    }
+
+    public static class ShardedProfile implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of("promotion.shards", "8");
+        }
+    }
+}
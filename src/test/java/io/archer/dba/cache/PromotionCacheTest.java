@@ -0,0 +1,47 @@
+package io.archer.dba.cache;
+
+import io.archer.model.Activity;
+import io.quarkus.redis.client.RedisClientName;
+import io.quarkus.redis.datasource.RedisDataSource;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@QuarkusTest
+class PromotionCacheTest extends AbstractPromotionStoreTest {
+    @Inject
+    @RedisClientName("promotion")
+    RedisDataSource redisDataSource;
+
+    @Test
+    void testAmountExpires() {
+        String activityId = "test-" + UUID.randomUUID();
+        Instant now = Instant.now();
+        store.reserve(activityId, "user-0").await().indefinitely();
+        store.prepare(
+                new Activity()
+                        .setId(activityId)
+                        .setReservingTime(now.minus(Duration.ofHours(1)))
+                        .setReservingDuration(Duration.ofMinutes(30))
+                        .setIssuingTime(now)
+                        .setIssuingDuration(Duration.ofHours(1))
+                        .setPercentage(100),
+                "test"
+        ).await().indefinitely();
+
+        // the amount outlives the issuing by a day, then a new run of the activity counts again.
+        long ttl = redisDataSource.key().pttl("promotion:amount:" + activityId);
+        assertTrue(ttl > Duration.ofHours(24).toMillis(), "ttl " + ttl);
+        assertTrue(ttl <= Duration.ofHours(25).toMillis(), "ttl " + ttl);
+
+        // issuing keeps the expiry.
+        store.issue(activityId, "user-0").await().indefinitely();
+        assertTrue(redisDataSource.key().pttl("promotion:amount:" + activityId) > 0);
+    }
+}
@@ -0,0 +1,63 @@
+package io.archer.dba.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReservationFilterTest {
+    private static int falsePositives(ReservationFilter filter, int users) {
+        int positives = 0;
+        for (int i = 0; i < users; i++) {
+            if (filter.mightContain("nobody-" + i)) {
+                positives++;
+            }
+        }
+        return positives;
+    }
+
+    @Test
+    void testMembership() {
+        ReservationFilter filter = ReservationFilter.create(100000, 0.01, 8 << 20);
+        for (int i = 0; i < 100000; i++) {
+            filter.add("user-" + i);
+        }
+        for (int i = 0; i < 100000; i++) {
+            assertTrue(filter.mightContain("user-" + i));
+        }
+        // about 1% of 100000.
+        int positives = falsePositives(filter, 100000);
+        assertTrue(positives < 1500, positives + " false positives");
+        // about 1.2 bytes a user at 1%.
+        assertTrue(filter.sizeInBytes() < 130000, filter.sizeInBytes() + " bytes");
+    }
+
+    @Test
+    void testMemoryBudget() {
+        ReservationFilter filter = ReservationFilter.create(100000, 0.01, 64 << 10);
+        assertEquals(64 << 10, filter.sizeInBytes());
+        for (int i = 0; i < 100000; i++) {
+            filter.add("user-" + i);
+        }
+        for (int i = 0; i < 100000; i++) {
+            assertTrue(filter.mightContain("user-" + i));
+        }
+        // about 8% with 5 bits a user, the filter still refuses most of the users who did not reserve.
+        int positives = falsePositives(filter, 100000);
+        assertTrue(positives > 1500 && positives < 12000, positives + " false positives");
+    }
+
+    @Test
+    void testBytes() {
+        ReservationFilter filter = ReservationFilter.create(1000, 0.01, 8 << 20);
+        for (int i = 0; i < 1000; i++) {
+            filter.add("user-" + i);
+        }
+        ReservationFilter loaded = ReservationFilter.fromBytes(filter.toBytes());
+        assertEquals(filter.sizeInBytes(), loaded.sizeInBytes());
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(loaded.mightContain("user-" + i));
+        }
+        assertEquals(falsePositives(filter, 10000), falsePositives(loaded, 10000));
+        assertThrows(IllegalArgumentException.class, () -> ReservationFilter.fromBytes(new byte[12]));
+    }
+}
@@ -0,0 +1,69 @@
+package io.archer.dba.cache;
+
+import io.archer.model.Promotion;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReservationTableTest {
+    private static Promotion reservation(String userId) {
+        return new Promotion()
+                .setId(UUID.randomUUID())
+                .setUser(userId)
+                .setReservedTime(Instant.ofEpochMilli(1_700_000_000_000L));
+    }
+
+    @Test
+    void testPutIfAbsent() {
+        ReservationTable table = new ReservationTable(4, false);
+        Promotion first = reservation("user-0");
+        assertNull(table.putIfAbsent(first));
+        Promotion existing = table.putIfAbsent(reservation("user-0"));
+        assertEquals(first.getId(), existing.getId());
+        assertEquals("user-0", existing.getUser());
+        assertEquals(1, table.size());
+
+        int index = table.indexOf("user-0");
+        assertFalse(table.isIssued(index));
+        table.write(index, first.setCode("ABCD2345").setIssuedTime(Instant.ofEpochMilli(1_700_000_001_000L)));
+        assertTrue(table.isIssued(index));
+        assertEquals("ABCD2345", table.get("user-0").getCode());
+        assertEquals(-1, table.indexOf("nobody"));
+    }
+
+    @Test
+    void testGrowAndRemove() {
+        for (boolean offHeap : new boolean[]{false, true}) {
+            // grow from the smallest table, then remove at random and check what is left can still be found.
+            ReservationTable table = new ReservationTable(1, offHeap);
+            Map<String, UUID> expected = new HashMap<>();
+            for (int i = 0; i < 10000; i++) {
+                Promotion promotion = reservation("user-" + i);
+                assertNull(table.putIfAbsent(promotion));
+                expected.put(promotion.getUser(), promotion.getId());
+            }
+            Random random = new Random(7);
+            for (int i = 0; i < 5000; i++) {
+                String userId = "user-" + random.nextInt(10000);
+                Promotion removed = table.remove(userId);
+                UUID id = expected.remove(userId);
+                assertEquals(id, removed == null ? null : removed.getId());
+            }
+            assertEquals(expected.size(), table.size());
+            for (int i = 0; i < 10000; i++) {
+                String userId = "user-" + i;
+                Promotion promotion = table.get(userId);
+                assertEquals(expected.get(userId), promotion == null ? null : promotion.getId());
+            }
+            int[] users = new int[1];
+            table.forEachUser(userId -> users[0]++);
+            assertEquals(expected.size(), users[0]);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package io.archer.dba.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StripedStockTest {
+    @Test
+    void testTakeFromOtherStripes() {
+        StripedStock stock = new StripedStock(5, 4);
+        assertEquals(5, stock.remaining());
+        // a stripe holds 1 or 2, the takes of one stripe move on to the others.
+        for (int i = 0; i < 5; i++) {
+            assertTrue(stock.tryTake(0));
+        }
+        assertFalse(stock.tryTake(3));
+        assertEquals(0, stock.remaining());
+        stock.giveBack(6);
+        assertEquals(1, stock.remaining());
+        assertTrue(stock.tryTake(1));
+    }
+
+    @Test
+    void testConcurrentTakes() throws InterruptedException {
+        StripedStock stock = new StripedStock(10000, 16);
+        AtomicInteger taken = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int stripe = t;
+            Thread thread = new Thread(() -> {
+                while (stock.tryTake(stripe)) {
+                    taken.incrementAndGet();
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(10000, taken.get());
+        assertEquals(0, stock.remaining());
+    }
+}
@@ -0,0 +1,118 @@
+package io.archer.dba.sql;
+
+import io.archer.model.Promotion;
+import io.quarkus.logging.Log;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@QuarkusTest
+class PromotionFacadeTest {
+    @Inject
+    PromotionFacade facade;
+
+    @Inject
+    DataSource dataSource;
+
+    private static List<Promotion> reservations(String activityId, int count) {
+        List<Promotion> promotions = new ArrayList<>(count);
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        for (int i = 0; i < count; i++) {
+            promotions.add(new Promotion()
+                    .setId(UUID.randomUUID())
+                    .setUser("user-" + i)
+                    .setActivity(activityId)
+                    .setReservedTime(now));
+        }
+        return promotions;
+    }
+
+    private long count(String activityId, String condition) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "SELECT COUNT(*) FROM promotion WHERE activity_id = ? AND " + condition
+             )) {
+            statement.setString(1, activityId);
+            try (ResultSet result = statement.executeQuery()) {
+                result.next();
+                return result.getLong(1);
+            }
+        }
+    }
+
+    @Test
+    void testSaveReservations() throws SQLException {
+        String activityId = "test-" + UUID.randomUUID();
+        List<Promotion> promotions = reservations(activityId, 1500);
+        assertTrue(facade.saveReservations(promotions));
+        // saving the same reservations again is a no-op.
+        assertTrue(facade.saveReservations(promotions.subList(0, 10)));
+        assertEquals(1500, count(activityId, "issued_time IS NULL"));
+    }
+
+    @Test
+    void testSaveIssuances() throws SQLException {
+        String activityId = "test-" + UUID.randomUUID();
+        List<Promotion> promotions = reservations(activityId, 100);
+        assertTrue(facade.saveReservations(promotions.subList(0, 50)));
+        Instant now = Instant.now();
+        for (int i = 0; i < 20; i++) {
+            promotions.get(i).setCode("CODE" + i).setIssuedTime(now);
+            // the reservation of these issuances is still queued.
+            promotions.get(50 + i).setCode("CODE" + (50 + i)).setIssuedTime(now);
+        }
+        List<Promotion> issued = new ArrayList<>(promotions.subList(0, 20));
+        issued.addAll(promotions.subList(50, 70));
+        assertTrue(facade.saveIssuances(issued));
+        assertTrue(facade.saveReservations(promotions.subList(50, 100)));
+
+        assertEquals(100, count(activityId, "TRUE"));
+        assertEquals(40, count(activityId, "coupon IS NOT NULL AND issued_time IS NOT NULL"));
+    }
+
+    @Test
+    void testSkipBadRow() throws SQLException {
+        String activityId = "test-" + UUID.randomUUID();
+        List<Promotion> promotions = reservations(activityId, 100);
+        // longer than the column, the row fails every retry.
+        promotions.get(37).setUser("user-" + "x".repeat(64));
+        assertTrue(facade.saveReservations(promotions));
+        assertEquals(99, count(activityId, "TRUE"));
+    }
+
+    @Test
+    void testThroughput() throws SQLException {
+        int rows = 2000;
+        String single = "test-" + UUID.randomUUID();
+        long start = System.nanoTime();
+        for (Promotion promotion : reservations(single, rows)) {
+            assertTrue(facade.saveReservation(promotion));
+        }
+        double singleRate = rows / ((System.nanoTime() - start) / 1e9);
+
+        String batched = "test-" + UUID.randomUUID();
+        List<Promotion> promotions = reservations(batched, rows);
+        start = System.nanoTime();
+        for (int from = 0; from < rows; from += 500) {
+            assertTrue(facade.saveReservations(promotions.subList(from, from + 500)));
+        }
+        double batchedRate = rows / ((System.nanoTime() - start) / 1e9);
+
+        Log.infof("single-row writes: %.0f rows/s, batched writes: %.0f rows/s", singleRate, batchedRate);
+        assertEquals(rows, count(single, "TRUE"));
+        assertEquals(rows, count(batched, "TRUE"));
+    }
+}
@@ -0,0 +1,264 @@
+package io.archer.load;
+
+import com.sun.management.ThreadMXBean;
+import io.archer.ActivityRegistry;
+import io.archer.dba.sql.ActivityFacade;
+import io.archer.model.Activity;
+import io.archer.queue.IssuedPromotionQueue;
+import io.archer.queue.ReservedPromotionQueue;
+import io.quarkus.test.common.http.TestHTTPResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import jakarta.inject.Inject;
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Drives the reserve and issue endpoints with many clients at once, like the flash sale in the README.
+ * <p>
+ * The simulated activity starts its reservation when the test starts, and lasts {@code load.reservingSeconds},
+ * the issuing starts right after it, so a run takes about that long. It is left out of the default build, run it with
+ * <pre>
+ * mvn test -Pload -Dload.users=30000 -Dload.connections=1000 -Dload.reservingSeconds=90 -Dload.issuingSeconds=60
+ * </pre>
+ * Every user reserves once, then every user tries to issue once when the issuing starts.
+ * Run it again with {@code -Dload.execution=BLOCKING} to compare the executions of the endpoints, the allocations
+ * of a phase count the live threads of the JVM, the simulated clients included.
+ * A request shed by the admission control is sent again after its Retry-After, like a well-behaved client.
+ */
+@QuarkusTest
+@Tag("load")
+@TestProfile(LoadSimulationTest.LoadProfile.class)
+class LoadSimulationTest {
+    private static final int USERS = Integer.getInteger("load.users", 300);
+    // the most requests in flight at a time, a user waits for a free connection before sending.
+    private static final int CONNECTIONS = Integer.getInteger("load.connections", 500);
+
+    private static final long RESERVING_SECONDS = Long.getLong("load.reservingSeconds", 20);
+    private static final long ISSUING_SECONDS = Long.getLong("load.issuingSeconds", 30);
+
+    private static final ThreadMXBean THREADS = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static class LoadProfile implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of(
+                    "promotion.issuingMode", System.getProperty("load.issuingMode", "SCRIPT"),
+                    "activity.execution", System.getProperty("load.execution", "REACTIVE")
+            );
+        }
+    }
+
+    private record Result(int status, String message, long latency) {
+    }
+
+    @TestHTTPResource("/activities")
+    URL activities;
+
+    @Inject
+    ActivityFacade activityFacade;
+
+    @Inject
+    ActivityRegistry registry;
+
+    @Inject
+    ReservedPromotionQueue reservedQueue;
+
+    @Inject
+    IssuedPromotionQueue issuedQueue;
+
+    private final AtomicInteger retries = new AtomicInteger();
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+    @Test
+    void testFlashSale() throws InterruptedException, SQLException {
+        String activityId = "load-" + UUID.randomUUID();
+        Instant now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        Activity activity = new Activity()
+                .setId(activityId)
+                .setReservingTime(now)
+                .setReservingDuration(Duration.ofSeconds(RESERVING_SECONDS))
+                // leave two seconds to count the amount once the reservation closes.
+                .setIssuingTime(now.plusSeconds(RESERVING_SECONDS + 2))
+                .setIssuingDuration(Duration.ofSeconds(ISSUING_SECONDS))
+                .setPercentage(20);
+        activityFacade.save(activity);
+        registry.reload();
+        System.out.println("Simulating " + USERS + " users on " + activityId + " with " + CONNECTIONS
+                + " connections, " + System.getProperty("load.execution", "REACTIVE") + " execution.");
+
+        List<Result> reserved = run("reserve", activityId);
+        long reservations = reserved.stream().filter(result -> result.status() == 200).count();
+
+        long wait = activity.getIssuingTime().toEpochMilli() - System.currentTimeMillis();
+        if (wait > 0) {
+            System.out.println("Waiting " + wait + " ms for the issuing to start.");
+            Thread.sleep(wait);
+        }
+        List<Result> issued = run("issue", activityId);
+        long issues = issued.stream().filter(result -> result.status() == 200).count();
+
+        System.out.printf(
+                "issued/reserved: %d/%d = %.4f, expected %d%n",
+                issues,
+                reservations,
+                reservations == 0 ? 0 : (double) issues / reservations,
+                Math.round(reservations * 0.2)
+        );
+        System.out.println("reserved queue: " + reservedQueue.getOffered() + " offered, "
+                + reservedQueue.getDropped() + " dropped, issued queue: "
+                + issuedQueue.getOffered() + " offered, " + issuedQueue.getDropped() + " dropped.");
+
+        assertTrue(
+                reserved.stream().noneMatch(LoadSimulationTest::isOutOfWindow)
+                        && issued.stream().noneMatch(LoadSimulationTest::isOutOfWindow),
+                "the activity windows are too short for " + USERS + " users, raise load.reservingSeconds or load.issuingSeconds"
+        );
+        assertTrue(reserved.stream().noneMatch(LoadSimulationTest::isServerError));
+        assertTrue(issued.stream().noneMatch(LoadSimulationTest::isServerError));
+        assertEquals(USERS, reservations);
+        assertEquals(Math.round(reservations * 0.2), issues);
+    }
+
+    private static boolean isOutOfWindow(Result result) {
+        return result.message().startsWith("The activity is not available");
+    }
+
+    private static boolean isServerError(Result result) {
+        return result.status() < 0 || result.status() >= 500;
+    }
+
+    private List<Result> run(String phase, String activityId) throws InterruptedException {
+        Semaphore connections = new Semaphore(CONNECTIONS);
+        ConcurrentLinkedQueue<Result> results = new ConcurrentLinkedQueue<>();
+        List<CompletableFuture<?>> requests = new ArrayList<>(USERS);
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < USERS; i++) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(activities + "/" + activityId + "/" + phase))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(
+                            Json.createObjectBuilder().add("user", "user-" + i).build().toString()
+                    ))
+                    .build();
+            connections.acquire();
+            long sent = System.nanoTime();
+            requests.add(send(request).whenComplete((response, cause) -> {
+                connections.release();
+                long latency = System.nanoTime() - sent;
+                if (cause != null) {
+                    results.add(new Result(-1, cause.getClass().getSimpleName(), latency));
+                } else {
+                    results.add(new Result(response.statusCode(), messageOf(response), latency));
+                }
+            }));
+        }
+        CompletableFuture.allOf(requests.toArray(new CompletableFuture[0])).exceptionally(cause -> null).join();
+        long elapsed = System.nanoTime() - start;
+        allocated = allocatedBytes() - allocated;
+        List<Result> list = new ArrayList<>(results);
+        report(phase, list, elapsed);
+        System.out.printf(
+                "  allocated: %.1f MB, %.1f MB/s, %.1f KB/request%n",
+                allocated / 1e6,
+                allocated / 1e6 / (elapsed / 1e9),
+                list.isEmpty() ? 0 : allocated / 1e3 / list.size()
+        );
+        System.out.println("  shed and sent again: " + retries.getAndSet(0));
+        return list;
+    }
+
+    private CompletableFuture<HttpResponse<String>> send(HttpRequest request) {
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofString()).thenCompose(response -> {
+            if (response.statusCode() != 429 && response.statusCode() != 503) {
+                return CompletableFuture.completedFuture(response);
+            }
+            retries.incrementAndGet();
+            long retryAfter = response.headers().firstValueAsLong("Retry-After").orElse(1);
+            return CompletableFuture.supplyAsync(
+                    () -> request,
+                    CompletableFuture.delayedExecutor(retryAfter, TimeUnit.SECONDS)
+            ).thenCompose(this::send);
+        });
+    }
+
+    private static String messageOf(HttpResponse<String> response) {
+        if (response.statusCode() == 200) {
+            return "ok";
+        }
+        try {
+            JsonObject body = Json.createReader(new StringReader(response.body())).readObject();
+            return body.getString("message", response.body());
+        } catch (RuntimeException e) {
+            return response.body();
+        }
+    }
+
+    private static void report(String phase, List<Result> results, long elapsed) {
+        long[] latencies = results.stream().mapToLong(Result::latency).sorted().toArray();
+        System.out.printf(
+                "%s: %d requests in %.3f s, %.1f requests/s, latency p50 %.2f ms, p99 %.2f ms, p999 %.2f ms, max %.2f ms%n",
+                phase,
+                results.size(),
+                elapsed / 1e9,
+                results.size() / (elapsed / 1e9),
+                percentile(latencies, 0.5),
+                percentile(latencies, 0.99),
+                percentile(latencies, 0.999),
+                percentile(latencies, 1)
+        );
+        Map<String, Integer> breakdown = new TreeMap<>();
+        for (Result result : results) {
+            breakdown.merge(result.status() + " " + result.message(), 1, Integer::sum);
+        }
+        breakdown.forEach((outcome, count) -> System.out.println("  " + outcome + ": " + count));
+    }
+
+    private static long allocatedBytes() {
+        long total = 0;
+        for (long bytes : THREADS.getThreadAllocatedBytes(THREADS.getAllThreadIds())) {
+            // -1 for a thread which has ended meanwhile.
+            total += Math.max(bytes, 0);
+        }
+        return total;
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(index, 0)] / 1e6;
+    }
+}
@@ -0,0 +1,49 @@
+package io.archer.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ActivityTest {
+    @Test
+    void testPhaseAt() {
+        // a reservation across midnight, then an issuing the next day.
+        Instant start = Instant.parse("2024-06-01T23:30:00Z");
+        Activity activity = new Activity()
+                .setId("test")
+                .setReservingTime(start)
+                .setReservingDuration(Duration.ofHours(1))
+                .setIssuingTime(start.plus(Duration.ofHours(12)))
+                .setIssuingDuration(Duration.ofMinutes(30));
+        assertEquals(Activity.Phase.PENDING, activity.phaseAt(start.minusMillis(1)));
+        assertEquals(Activity.Phase.RESERVING, activity.phaseAt(start));
+        assertEquals(Activity.Phase.RESERVING, activity.phaseAt(Instant.parse("2024-06-02T00:29:59.999Z")));
+        assertEquals(Activity.Phase.CLOSED, activity.phaseAt(Instant.parse("2024-06-02T00:30:00Z")));
+        assertEquals(Activity.Phase.ISSUING, activity.phaseAt(Instant.parse("2024-06-02T11:30:00Z")));
+        assertEquals(Activity.Phase.FINISHED, activity.phaseAt(Instant.parse("2024-06-02T12:00:00Z")));
+    }
+
+    @Test
+    void testPhaseIsNotDefinition() {
+        Instant start = Instant.parse("2024-06-01T00:00:00Z");
+        Activity activity = new Activity()
+                .setId("test")
+                .setReservingTime(start)
+                .setReservingDuration(Duration.ofHours(1))
+                .setIssuingTime(start.plus(Duration.ofHours(2)))
+                .setIssuingDuration(Duration.ofHours(1))
+                .setPercentage(20);
+        Activity same = new Activity()
+                .setId("test")
+                .setReservingTime(start)
+                .setReservingDuration(Duration.ofHours(1))
+                .setIssuingTime(start.plus(Duration.ofHours(2)))
+                .setIssuingDuration(Duration.ofHours(1))
+                .setPercentage(20)
+                .setPhase(Activity.Phase.PREPARED);
+        assertEquals(activity, same);
+    }
+}
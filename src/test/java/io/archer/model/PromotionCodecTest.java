@@ -0,0 +1,67 @@
+package io.archer.model;
+
+import io.vertx.core.json.Json;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PromotionCodecTest {
+    private static Promotion promotion(boolean issued) {
+        Promotion promotion = new Promotion()
+                .setId(UUID.randomUUID())
+                .setUser("user")
+                .setActivity("activity")
+                .setReservedTime(Instant.now().truncatedTo(ChronoUnit.MILLIS));
+        if (issued) {
+            promotion.setCode("Ab3dEf7h").setIssuedTime(Instant.now().truncatedTo(ChronoUnit.MILLIS));
+        }
+        return promotion;
+    }
+
+    private static void assertSame(Promotion expected, Promotion actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getUser(), actual.getUser());
+        assertEquals(expected.getActivity(), actual.getActivity());
+        assertEquals(expected.getReservedTime(), actual.getReservedTime());
+        assertEquals(expected.getIssuedTime(), actual.getIssuedTime());
+        assertEquals(expected.getCode(), actual.getCode());
+    }
+
+    @Test
+    void testRoundTrip() {
+        for (boolean issued : new boolean[]{false, true}) {
+            Promotion promotion = promotion(issued);
+            byte[] value = PromotionCodec.encode(promotion);
+            assertEquals(PromotionCodec.LENGTH, value.length);
+            assertSame(promotion, PromotionCodec.decode(value, "activity", "user"));
+        }
+    }
+
+    @Test
+    void testShortCode() {
+        Promotion promotion = promotion(true).setCode("Ab3");
+        assertEquals("Ab3", PromotionCodec.decode(PromotionCodec.encode(promotion), "activity", "user").getCode());
+        assertThrows(IllegalArgumentException.class, () -> PromotionCodec.encode(promotion.setCode("Ab3dEf7hX")));
+    }
+
+    @Test
+    void testJsonFallback() {
+        for (boolean issued : new boolean[]{false, true}) {
+            Promotion promotion = promotion(issued);
+            byte[] value = Json.encode(promotion.toMap()).getBytes(StandardCharsets.UTF_8);
+            assertSame(promotion, PromotionCodec.decode(value, "ignored", "ignored"));
+        }
+    }
+
+    @Test
+    void testFootprint() {
+        // the timing and the allocation of a round trip are measured by PromotionBenchmark in the benchmark profile.
+        int json = Json.encode(promotion(true).toMap()).getBytes(StandardCharsets.UTF_8).length;
+        assertTrue(PromotionCodec.LENGTH < json / 3);
+    }
+}
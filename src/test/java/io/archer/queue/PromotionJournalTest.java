@@ -0,0 +1,147 @@
+package io.archer.queue;
+
+import io.archer.PromotionOptions;
+import io.archer.model.Promotion;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PromotionJournalTest {
+    @TempDir
+    Path directory;
+
+    static PromotionJournal journal(boolean enabled, Path directory) {
+        return new PromotionJournal(new PromotionOptions.Journal() {
+            @Override
+            public boolean enabled() {
+                return enabled;
+            }
+
+            @Override
+            public String directory() {
+                return String.valueOf(directory);
+            }
+
+            @Override
+            public int segmentSize() {
+                return 4096;
+            }
+
+            @Override
+            public Duration flushInterval() {
+                return Duration.ofMillis(1);
+            }
+        });
+    }
+
+    private static Promotion promotion(int i) {
+        Promotion promotion = new Promotion()
+                .setId(UUID.randomUUID())
+                .setUser("user-" + i)
+                .setActivity("activity")
+                .setReservedTime(Instant.now().truncatedTo(ChronoUnit.MILLIS));
+        if (i % 2 == 1) {
+            promotion.setCode("Ab3" + i).setIssuedTime(Instant.now().truncatedTo(ChronoUnit.MILLIS));
+        }
+        return promotion;
+    }
+
+    private long segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    @Test
+    void testReplay() throws IOException {
+        PromotionJournal journal = journal(true, directory);
+        List<Promotion> appended = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            Promotion promotion = promotion(i);
+            journal.append(i % 2 == 0 ? PromotionJournal.Type.RESERVED : PromotionJournal.Type.ISSUED, promotion);
+            appended.add(promotion);
+        }
+        journal.close();
+        assertTrue(segments() > 1);
+
+        List<Promotion> replayed = new ArrayList<>();
+        PromotionJournal recovered = journal(true, directory);
+        recovered.replay(16, (type, promotions) -> {
+            assertTrue(promotions.size() <= 16);
+            for (Promotion promotion : promotions) {
+                assertEquals(type == PromotionJournal.Type.ISSUED, promotion.getCode() != null);
+            }
+            replayed.addAll(promotions);
+            return true;
+        });
+        assertEquals(appended.size(), replayed.size());
+        for (int i = 0; i < appended.size(); i++) {
+            assertEquals(appended.get(i).toMap(), replayed.get(i).toMap());
+        }
+        // only the new active segment is left.
+        assertEquals(1, segments());
+        recovered.close();
+    }
+
+    @Test
+    void testKeepUnsavedSegments() throws IOException {
+        PromotionJournal journal = journal(true, directory);
+        journal.append(PromotionJournal.Type.RESERVED, promotion(0));
+        journal.close();
+
+        journal(true, directory).replay(16, (type, promotions) -> false);
+        List<Promotion> replayed = new ArrayList<>();
+        journal(true, directory).replay(16, (type, promotions) -> replayed.addAll(promotions));
+        assertEquals(1, replayed.size());
+    }
+
+    @Test
+    void testLongestIds() throws IOException {
+        PromotionJournal journal = journal(true, directory);
+        // 3 bytes a char in UTF-8.
+        String id = "\u4e2d".repeat(Promotion.MAX_ID_LENGTH);
+        Promotion longest = promotion(0).setUser(id).setActivity(id);
+        for (int i = 0; i < 20; i++) {
+            journal.append(PromotionJournal.Type.RESERVED, longest);
+        }
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> journal.append(PromotionJournal.Type.RESERVED, promotion(0).setUser(id + "x"))
+        );
+        journal.close();
+
+        List<Promotion> replayed = new ArrayList<>();
+        journal(true, directory).replay(16, (type, promotions) -> replayed.addAll(promotions));
+        assertEquals(20, replayed.size());
+        assertEquals(longest.toMap(), replayed.get(19).toMap());
+    }
+
+    @Test
+    void testAcknowledge() throws IOException {
+        PromotionJournal journal = journal(true, directory);
+        List<Long> segments = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            segments.add(journal.append(PromotionJournal.Type.RESERVED, promotion(0)));
+        }
+        long before = segments();
+        assertTrue(before > 1);
+        for (long segment : segments) {
+            journal.acknowledge(segment, 1);
+        }
+        // the saved segments are deleted but the active one.
+        assertEquals(1, segments());
+        journal.close();
+    }
+}
@@ -0,0 +1,104 @@
+package io.archer.queue;
+
+import io.archer.PromotionOptions;
+import io.archer.model.Promotion;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PromotionQueueTest {
+    private static PromotionQueue queue(int capacity, int batchSize, PromotionOptions.Queue.Overflow overflow) {
+        return new PromotionQueue("test", PromotionJournal.Type.RESERVED, new PromotionOptions.Queue() {
+            @Override
+            public int capacity() {
+                return capacity;
+            }
+
+            @Override
+            public int batchSize() {
+                return batchSize;
+            }
+
+            @Override
+            public Duration linger() {
+                return Duration.ofMillis(50);
+            }
+
+            @Override
+            public Overflow overflow() {
+                return overflow;
+            }
+
+            @Override
+            public Duration offerTimeout() {
+                return Duration.ofMillis(10);
+            }
+        }, PromotionJournalTest.journal(false, null)) {
+        };
+    }
+
+    private static Promotion promotion() {
+        return new Promotion().setId(UUID.randomUUID());
+    }
+
+    @Test
+    void testBatchBySize() throws InterruptedException {
+        PromotionQueue queue = queue(100, 4, PromotionOptions.Queue.Overflow.REJECT);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(queue.offer(promotion()));
+        }
+        assertEquals(4, queue.takeBatch().promotions().size());
+        assertEquals(4, queue.takeBatch().promotions().size());
+        assertEquals(2, queue.takeBatch().promotions().size());
+        assertEquals(10, queue.getTaken());
+        assertEquals(0, queue.getDepth());
+    }
+
+    @Test
+    void testBatchByLinger() throws InterruptedException {
+        PromotionQueue queue = queue(100, 100, PromotionOptions.Queue.Overflow.REJECT);
+        queue.offer(promotion());
+        long start = System.nanoTime();
+        assertEquals(1, queue.takeBatch().promotions().size());
+        assertTrue(System.nanoTime() - start >= Duration.ofMillis(50).toNanos());
+        assertTrue(queue.getMaxLatency().compareTo(Duration.ofMillis(50)) >= 0);
+    }
+
+    @Test
+    void testReject() {
+        PromotionQueue queue = queue(2, 10, PromotionOptions.Queue.Overflow.REJECT);
+        assertTrue(queue.offer(promotion()));
+        assertTrue(queue.offer(promotion()));
+        assertFalse(queue.offer(promotion()));
+        assertEquals(2, queue.getOffered());
+        assertEquals(1, queue.getDropped());
+    }
+
+    @Test
+    void testDropOldest() throws InterruptedException {
+        PromotionQueue queue = queue(2, 10, PromotionOptions.Queue.Overflow.DROP_OLDEST);
+        Promotion first = promotion();
+        queue.offer(first);
+        Promotion second = promotion();
+        queue.offer(second);
+        Promotion third = promotion();
+        assertTrue(queue.offer(third));
+        assertEquals(1, queue.getDropped());
+        assertEquals(List.of(second, third), queue.takeBatch().promotions());
+    }
+
+    @Test
+    void testBlock() {
+        PromotionQueue queue = queue(1, 10, PromotionOptions.Queue.Overflow.BLOCK);
+        assertTrue(queue.blocks());
+        assertTrue(queue.offer(promotion()));
+        long start = System.nanoTime();
+        assertFalse(queue.offer(promotion()));
+        assertTrue(System.nanoTime() - start >= Duration.ofMillis(10).toNanos());
+        assertEquals(1, queue.getDropped());
+    }
+}
@@ -0,0 +1,91 @@
+package io.archer.schedule;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimingWheelTest {
+    @Test
+    void testExpireAcrossLevels() throws InterruptedException {
+        // 2 levels of 8 buckets of 1 ms cover 64 ms, the longer delays are kept aside until the top level turns over.
+        try (TimingWheel wheel = new TimingWheel("test", Duration.ofMillis(1), 8, 2)) {
+            long[] delays = {0, 1, 5, 8, 9, 30, 63, 64, 65, 100, 250};
+            CountDownLatch latch = new CountDownLatch(delays.length);
+            ConcurrentHashMap<Long, Long> late = new ConcurrentHashMap<>();
+            long start = System.nanoTime();
+            for (long delay : delays) {
+                wheel.schedule(() -> {
+                    late.put(delay, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) - delay);
+                    latch.countDown();
+                }, delay, TimeUnit.MILLISECONDS);
+            }
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            late.forEach((delay, by) -> {
+                assertTrue(by >= 0, delay + " ms ran " + -by + " ms early");
+                assertTrue(by < 200, delay + " ms ran " + by + " ms late");
+            });
+            assertEquals(0, wheel.getPending());
+        }
+    }
+
+    @Test
+    void testOneLevel() throws InterruptedException {
+        // one level of 8 buckets of 1 ms, every delay from 8 ms on is kept aside until the level turns over.
+        try (TimingWheel wheel = new TimingWheel("test", Duration.ofMillis(1), 8, 1)) {
+            long[] delays = {3, 8, 20, 50};
+            CountDownLatch latch = new CountDownLatch(delays.length);
+            for (long delay : delays) {
+                wheel.schedule(latch::countDown, delay, TimeUnit.MILLISECONDS);
+            }
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            assertEquals(0, wheel.getPending());
+        }
+    }
+
+    @Test
+    void testCancel() throws InterruptedException {
+        try (TimingWheel wheel = new TimingWheel("test", Duration.ofMillis(1), 8, 2)) {
+            AtomicInteger runs = new AtomicInteger();
+            TimingWheel.Timeout cancelled = wheel.schedule(runs::incrementAndGet, 20, TimeUnit.MILLISECONDS);
+            CountDownLatch latch = new CountDownLatch(1);
+            TimingWheel.Timeout expired = wheel.schedule(latch::countDown, 40, TimeUnit.MILLISECONDS);
+            assertTrue(cancelled.cancel());
+            assertFalse(cancelled.cancel());
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            assertFalse(expired.cancel());
+            assertEquals(0, runs.get());
+        }
+    }
+
+    @Test
+    void testConcurrentSchedule() throws InterruptedException {
+        try (TimingWheel wheel = new TimingWheel("test", Duration.ofMillis(1), 64, 3)) {
+            int threads = 8;
+            int timers = 5000;
+            CountDownLatch latch = new CountDownLatch(threads * timers);
+            List<Thread> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                Thread worker = new Thread(() -> {
+                    for (int i = 0; i < timers; i++) {
+                        wheel.schedule(latch::countDown, i % 200, TimeUnit.MILLISECONDS);
+                    }
+                });
+                worker.start();
+                workers.add(worker);
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            assertEquals(0, wheel.getPending());
+        }
+    }
+}